@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2017, Alexander Müller, Ali Kalsen and affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * SettingsRepository.java is part of Privacy Friendly Battleship.
+ *
+ * Privacy Friendly Battleship is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Privacy Friendly Battleship is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Privacy Friendly Battleship. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.secuso.privacyfriendlybattleship;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the flags of a preferences file in memory, e.g. whether a tutorial has already
+ * been shown. The file is read once per process, all reads are served from memory. Writes change
+ * the memory right away and are collected for FLUSH_DELAY milliseconds, then they are handed to
+ * the preferences in one batch, which writes them to disk in the background. Activities flush the
+ * pending writes when they are paused, cf. BaseActivity.
+ *
+ * The repositories are meant to be used on the UI thread.
+ */
+
+public final class SettingsRepository {
+
+    private static final long FLUSH_DELAY = 500;
+
+    private static final Map<String, SettingsRepository> repositories = new HashMap<>();
+
+    private final SharedPreferences preferences;
+    private final Map<String, Boolean> flags = new HashMap<>();
+    private final Map<String, Boolean> pendingFlags = new HashMap<>();//written, but not flushed yet
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private SettingsRepository(SharedPreferences preferences) {
+        this.preferences = preferences;
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (entry.getValue() instanceof Boolean) {
+                this.flags.put(entry.getKey(), (Boolean) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the repository of the default preferences of the app.
+     */
+    public static SettingsRepository getDefault(Context context) {
+        return get(context, null);
+    }
+
+    /**
+     * Returns the repository of the preferences file with the given name.
+     * @param context Any context of the app
+     * @param name Name of the preferences file or null for the default preferences
+     * @return The repository, which is loaded on first access
+     */
+    public static synchronized SettingsRepository get(Context context, String name) {
+        SettingsRepository repository = repositories.get(name);
+        if (repository == null) {
+            Context appContext = context.getApplicationContext();
+            repository = new SettingsRepository(name == null
+                    ? PreferenceManager.getDefaultSharedPreferences(appContext)
+                    : appContext.getSharedPreferences(name, Context.MODE_PRIVATE));
+            repositories.put(name, repository);
+        }
+        return repository;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Boolean value = this.flags.get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public void putBoolean(String key, boolean value) {
+        Boolean previous = this.flags.put(key, value);
+        if (previous != null && previous == value && !this.pendingFlags.containsKey(key))
+            return;
+        boolean scheduled = !this.pendingFlags.isEmpty();
+        this.pendingFlags.put(key, value);
+        if (!scheduled) {
+            this.handler.postDelayed(this.flushTask, FLUSH_DELAY);
+        }
+    }
+
+    /**
+     * Hands all pending writes to the preferences at once. The preferences write them to disk in
+     * the background.
+     */
+    public void flush() {
+        this.handler.removeCallbacks(this.flushTask);
+        if (this.pendingFlags.isEmpty())
+            return;
+        SharedPreferences.Editor editor = this.preferences.edit();
+        for (Map.Entry<String, Boolean> entry : this.pendingFlags.entrySet()) {
+            editor.putBoolean(entry.getKey(), entry.getValue());
+        }
+        editor.apply();
+        this.pendingFlags.clear();
+    }
+
+    /**
+     * Flushes the pending writes of all repositories.
+     */
+    public static synchronized void flushAll() {
+        for (SettingsRepository repository : repositories.values()) {
+            repository.flush();
+        }
+    }
+}
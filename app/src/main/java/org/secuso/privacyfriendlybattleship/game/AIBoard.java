@@ -0,0 +1,212 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+/**
+ * This class contains what the AI knows about the grid it attacks: the state of each cell and the
+ * number of ships of each size which have not been sunk yet. It is updated by GameAI after each
+ * move and read by the AIStrategy choosing the moves. Besides the state of each cell it maintains
+ * the untried cells and bitboards of the cells which cannot contain a ship anymore and of the hit
+ * cells of ships which have not been sunk yet.
+ */
+
+public final class AIBoard {
+
+    public enum Cell {
+        UNKNOWN(0), WATER(1), SHIP(2), SUNK(3);
+
+        final int val;
+        Cell(int i) {
+            val = i;
+        }
+    }
+
+    private final int gridSize;
+    private final int[][] grid;//represents the opponents grid; 0: unknown, 1: water, 2: ship, 3: sunk ship
+    private final int[] remainingShips;//number of ships of size 2, 3, 4 and 5 which have not been sunk
+    private final CellPool untriedCells;
+    private final long[] blockedCells;//water and sunk ships
+    private final long[] hitCells;//hit cells of ships which have not been sunk yet
+
+    /**
+     * Creates a board on which no cell has been attacked yet.
+     * @param gridSize Size of the grid
+     * @param shipCount Number of ships of size 2, 3, 4 and 5
+     */
+    AIBoard(int gridSize, int[] shipCount) {
+        this(new int[gridSize][gridSize], shipCount.clone());
+    }
+
+    /**
+     * Creates the board of an AI attacking the given grid, i.e. the grid of player one. The AI
+     * knows the cells attacked so far, whether they have hit a ship and whether the ship has been
+     * sunk.
+     * @param attackedGrid The grid attacked by the AI
+     * @return The board
+     */
+    static AIBoard observe(GameGrid attackedGrid) {
+        int gridSize = attackedGrid.getSize();
+        GameShipSet fleet = attackedGrid.getShipSet();
+        int[][] grid = new int[gridSize][gridSize];
+        for (int col = 0; col < gridSize; col++) {
+            for (int row = 0; row < gridSize; row++) {
+                GameCell cell = attackedGrid.getCell(col, row);
+                if (!cell.isHit()) {
+                    grid[col][row] = Cell.UNKNOWN.val;
+                } else if (!cell.isShip()) {
+                    grid[col][row] = Cell.WATER.val;
+                } else {
+                    GameShip ship = fleet.findShipContainingCell(cell);
+                    grid[col][row] = ship != null && ship.isDestroyed() ? Cell.SUNK.val : Cell.SHIP.val;
+                }
+            }
+        }
+        int[] shipCount = new int[] {
+                fleet.getNumberOfShipsSize2(),
+                fleet.getNumberOfShipsSize3(),
+                fleet.getNumberOfShipsSize4(),
+                fleet.getNumberOfShipsSize5() };
+        int[] remainingShips = shipCount.clone();
+        for (int sizeIndex = 0; sizeIndex < shipCount.length; sizeIndex++) {
+            for (int i = 0; i < shipCount[sizeIndex]; i++) {
+                GameShip ship = fleet.getShip(sizeIndex, i);
+                if (ship != null && ship.isDestroyed()) {
+                    remainingShips[sizeIndex]--;
+                }
+            }
+        }
+        return new AIBoard(grid, remainingShips);
+    }
+
+    /**
+     * Recreates a board from its grid.
+     * @param grid State of each cell, indexed by col and row
+     * @param remainingShips Number of ships of size 2, 3, 4 and 5 which have not been sunk
+     */
+    AIBoard(int[][] grid, int[] remainingShips) {
+        this.gridSize = grid.length;
+        this.grid = grid;
+        this.remainingShips = remainingShips;
+        int cellCount = this.gridSize * this.gridSize;
+        this.untriedCells = new CellPool(cellCount);
+        this.blockedCells = BitBoard.create(cellCount);
+        this.hitCells = BitBoard.create(cellCount);
+        for (int col = 0; col < this.gridSize; col++) {
+            for (int row = 0; row < this.gridSize; row++) {
+                int cell = row * this.gridSize + col;
+                int state = grid[col][row];
+                if (state == Cell.UNKNOWN.val) {
+                    this.untriedCells.add(cell);
+                } else if (state == Cell.SHIP.val) {
+                    BitBoard.set(this.hitCells, cell);
+                } else {
+                    BitBoard.set(this.blockedCells, cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the board after the given cell has been attacked.
+     * @param cell Index of the attacked cell
+     * @param result Result of the attack
+     */
+    void record(int cell, MoveResult result) {
+        int col = cell % this.gridSize;
+        int row = cell / this.gridSize;
+        this.untriedCells.remove(cell);
+        if (!result.isHit()) {
+            this.grid[col][row] = Cell.WATER.val;
+            BitBoard.set(this.blockedCells, cell);
+            return;
+        }
+
+        this.grid[col][row] = Cell.SHIP.val;
+        BitBoard.set(this.hitCells, cell);
+        if (result.isSunk()) {
+            GameShip ship = result.getShip();
+            for (GameCell shipCell : ship.getShipsCells()) {
+                this.grid[shipCell.getCol()][shipCell.getRow()] = Cell.SUNK.val;
+                BitBoard.clear(this.hitCells, shipCell.getIndex());
+                BitBoard.set(this.blockedCells, shipCell.getIndex());
+            }
+            this.remainingShips[ship.getSize() - 2]--;
+        }
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    public int getCellCount() {
+        return gridSize * gridSize;
+    }
+
+    public Cell getState(int cell) {
+        return Cell.values()[this.grid[cell % this.gridSize][cell / this.gridSize]];
+    }
+
+    public boolean isUntried(int cell) {
+        return this.untriedCells.contains(cell);
+    }
+
+    /**
+     * Returns the number of ships of the given size which have not been sunk yet.
+     * @param size Size of the ships, between 2 and 5
+     * @return Number of ships
+     */
+    public int getRemainingShips(int size) {
+        return this.remainingShips[size - 2];
+    }
+
+    /**
+     * Returns the number of remaining ships of size 2, 3, 4 and 5. The array must not be modified.
+     */
+    int[] getRemainingShips() {
+        return remainingShips;
+    }
+
+    /**
+     * Returns the cells which have not been attacked yet. The pool must not be modified.
+     */
+    CellPool getUntriedCells() {
+        return untriedCells;
+    }
+
+    /**
+     * Returns the bitboard of the cells which cannot contain a ship which has not been sunk yet, i.e.
+     * water and sunk ships. The bitboard must not be modified.
+     */
+    long[] getBlockedCells() {
+        return blockedCells;
+    }
+
+    /**
+     * Returns the bitboard of the hit cells of ships which have not been sunk yet. The bitboard
+     * must not be modified.
+     */
+    long[] getHitCells() {
+        return hitCells;
+    }
+
+    int[][] getGrid() {
+        return grid;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This class lets the AI choose its moves on a background thread, such that the UI does not freeze
+ * while the AI is thinking. The target of the next move can be prefetched during the turn of the
+ * player, since it only depends on the moves of the AI. Once the move is requested, the target is
+ * handed to a callback on the callback executor, e.g. the UI thread. The caller then makes the move
+ * with GameAI.makeMove(int).
+ *
+ * The AI is taken from the controller whenever a target is chosen. GameController recreates the AI
+ * when a move of the AI is undone, redone or replayed, cf. GameController.getOpponentAI(), and a
+ * target prefetched by the previous AI is then discarded.
+ *
+ * All methods have to be called on the thread the callbacks are delivered on.
+ */
+
+public class AIMoveExecutor {
+
+    public interface Callback {
+        void onMoveChosen(int cell);
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "GameAI");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final GameController controller;
+    private final Executor callbackExecutor;
+    private GameAI ai;//the AI choosing the prefetched target
+    private Future<Integer> target;
+    private Future<?> delivery;
+    private int generation;//incremented on cancel, such that results already posted are dropped
+
+    public AIMoveExecutor(GameController controller, Executor callbackExecutor) {
+        this.controller = controller;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Starts choosing the next move of the AI in the background, unless this has already been done.
+     */
+    public void prefetch() {
+        final GameAI ai = this.controller.getOpponentAI();
+        if (this.target != null && this.ai != ai) {
+            // The AI has been recreated since the target was prefetched
+            cancel();
+        }
+        if (this.target == null) {
+            this.ai = ai;
+            this.target = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return ai.chooseTarget();
+                }
+            });
+        }
+    }
+
+    /**
+     * Requests the next move of the AI. The callback is called once the target has been chosen,
+     * unless the move is cancelled before.
+     * @param callback Callback receiving the index of the cell to attack
+     */
+    public void requestMove(final Callback callback) {
+        prefetch();
+        final Future<Integer> target = this.target;
+        final int generation = this.generation;
+        // The executor runs one task at a time, so the target has been chosen when this task runs.
+        this.delivery = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final int cell;
+                try {
+                    cell = target.get();
+                } catch (CancellationException | InterruptedException e) {
+                    return;
+                } catch (final ExecutionException e) {
+                    callbackExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            throw new IllegalStateException("The AI failed to choose a move.", e.getCause());
+                        }
+                    });
+                    return;
+                }
+
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != AIMoveExecutor.this.generation) {
+                            return;
+                        }
+                        AIMoveExecutor.this.target = null;
+                        AIMoveExecutor.this.ai = null;
+                        AIMoveExecutor.this.delivery = null;
+                        callback.onMoveChosen(cell);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Cancels the pending move and the prefetched target. The callback of a requested move will not
+     * be called anymore. This has to be called if the AI is recreated while a move is requested.
+     */
+    public void cancel() {
+        this.generation++;
+        if (this.target != null) {
+            this.target.cancel(true);
+            this.target = null;
+            this.ai = null;
+        }
+        if (this.delivery != null) {
+            this.delivery.cancel(true);
+            this.delivery = null;
+        }
+    }
+}
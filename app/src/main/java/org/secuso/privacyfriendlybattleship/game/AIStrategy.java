@@ -0,0 +1,71 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Random;
+
+/**
+ * This interface is implemented by the strategies choosing the moves of the AI. GameAI keeps the
+ * AIBoard up to date and asks the strategy for a target before each move. Afterwards it reports the
+ * result of the move, such that the strategy can update its own state. The strategy of a game mode
+ * is created by GameMode.createAIStrategy().
+ *
+ * chooseTarget may be called on a background thread, but never concurrently with the other methods.
+ */
+
+public interface AIStrategy {
+
+    /**
+     * Initializes the state of the strategy from the given board. This is called before the first
+     * move and after the AI has been restored, in which case cells have already been attacked.
+     * @param board The board attacked by the AI
+     */
+    void reset(AIBoard board);
+
+    /**
+     * Chooses the next cell to attack. The board must not be modified.
+     * @param board The board attacked by the AI
+     * @param random Random number generator of the game
+     * @return Index of an untried cell
+     */
+    int chooseTarget(AIBoard board, Random random);
+
+    /**
+     * Called after a cell has been attacked and the board has been updated.
+     * @param board The board attacked by the AI
+     * @param cell Index of the attacked cell
+     * @param result Result of the attack
+     */
+    void onResult(AIBoard board, int cell, MoveResult result);
+
+    /**
+     * Returns the time in milliseconds chooseTarget may take. Strategies which choose their moves
+     * in constant time return 0.
+     * @return Time budget in milliseconds
+     */
+    long getTimeBudget();
+
+    /**
+     * Sets the time in milliseconds chooseTarget may take. Strategies which choose their moves in
+     * constant time ignore the budget.
+     * @param millis Time budget in milliseconds
+     */
+    void setTimeBudget(long millis);
+}
@@ -20,47 +20,61 @@
 
 package org.secuso.privacyfriendlybattleship.game;
 
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.atomic.AtomicBoolean;
-
 /**
- * This class creates a timer, which only counts full seconds, if it is running. Created on 27.01.2017.
+ * This class creates a timer, which only counts the time while it is running. Created on 27.01.2017.
+ *
+ * The timer does not tick. It remembers when it has been started on the monotonic clock of
+ * System.nanoTime() and computes the elapsed time whenever it is asked for it, so it needs no
+ * thread and measures milliseconds. Changes of the wall clock do not affect it.
  *
  * @author Ali Kalsen
  */
 
 public class BattleshipsTimer {
 
-    private Timer internalTimer;
-    private AtomicBoolean timerRunning = new AtomicBoolean(false);
-    private int time = 0;
-    private final int WAIT_TIME = 1000;
+    private boolean running;
+    private long startNanos;//time the timer has been started at, only valid while it is running
+    private long timeMillis;//time counted until the timer has been started or stopped last
 
-    private void init() {
-        internalTimer = new Timer();
-        internalTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                if ( timerRunning.get()) {
-                    time++;
-                }
-            }
-        },0 ,WAIT_TIME);
+    public synchronized void stop(){
+        if(this.running){
+            this.timeMillis = getTimeMillis();
+            this.running = false;
+        }
     }
 
-    public void stop(){
-        timerRunning.set(false);
+    public synchronized void start(){
+        if(!this.running){
+            this.startNanos = System.nanoTime();
+            this.running = true;
+        }
     }
 
-    public void start(){
-        timerRunning.set(true);
-        if(internalTimer == null){
-            init();
+    /**
+     * Returns the number of full seconds counted so far.
+     */
+    public int getTime(){
+        return (int) (getTimeMillis() / 1000);
+    }
+
+    /**
+     * Returns the number of milliseconds counted so far.
+     */
+    public synchronized long getTimeMillis(){
+        if(!this.running){
+            return this.timeMillis;
         }
+        return this.timeMillis + (System.nanoTime() - this.startNanos) / 1000000;
     }
 
-    public int getTime(){
-        return time;
+    /**
+     * Sets the number of milliseconds counted so far, e.g. when a game is restored.
+     * @param timeMillis Number of milliseconds
+     */
+    synchronized void setTimeMillis(long timeMillis){
+        this.timeMillis = timeMillis;
+        if(this.running){
+            this.startNanos = System.nanoTime();
+        }
     }
 }
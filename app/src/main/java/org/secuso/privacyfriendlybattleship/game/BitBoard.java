@@ -0,0 +1,99 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+/**
+ * This class provides operations on bitboards. A bitboard is a long[] in which bit i stands for
+ * the cell with index i of a grid, where the index of a cell is row * gridSize + col. Whole-grid
+ * questions can then be answered with a few word-wide operations instead of visiting every cell.
+ */
+
+public final class BitBoard {
+
+    private BitBoard(){} // this class should not be initialized
+
+    /**
+     * Returns the number of long words needed to store one bit for each of the given cells.
+     * @param cellCount Number of cells
+     * @return Number of words
+     */
+    public static int words(int cellCount) {
+        return (cellCount + 63) >>> 6;
+    }
+
+    public static long[] create(int cellCount) {
+        return new long[words(cellCount)];
+    }
+
+    public static boolean get(long[] board, int index) {
+        return (board[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public static void set(long[] board, int index) {
+        board[index >>> 6] |= 1L << index;
+    }
+
+    public static void clear(long[] board, int index) {
+        board[index >>> 6] &= ~(1L << index);
+    }
+
+    public static void set(long[] board, int index, boolean value) {
+        if (value) {
+            set(board, index);
+        } else {
+            clear(board, index);
+        }
+    }
+
+    public static int cardinality(long[] board) {
+        int count = 0;
+        for (long word : board) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public static boolean isEmpty(long[] board) {
+        for (long word : board) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if every bit set in the first board is also set in the second one.
+     * @param board Board to test
+     * @param other Board which has to contain all bits of board
+     * @return True if board is a subset of other
+     */
+    public static boolean isSubsetOf(long[] board, long[] other) {
+        for (int i = 0; i < board.length; i++) {
+            if ((board[i] & ~other[i]) != 0) return false;
+        }
+        return true;
+    }
+
+    public static boolean intersects(long[] board, long[] other) {
+        for (int i = 0; i < board.length; i++) {
+            if ((board[i] & other[i]) != 0) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Random;
+
+/**
+ * This class is a set of cell indices which supports adding, removing and drawing a random cell in
+ * constant time. The cells are stored densely in an array, together with the position of each cell
+ * in that array. A cell is removed by moving the last cell to its position.
+ */
+
+final class CellPool {
+
+    private final int[] cells;
+    private final int[] positions;//position of each cell in cells or -1 if the cell is not contained
+    private int size;
+
+    /**
+     * Creates an empty pool.
+     * @param cellCount Number of cells of the grid
+     */
+    CellPool(int cellCount) {
+        this.cells = new int[cellCount];
+        this.positions = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            this.positions[i] = -1;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int cell) {
+        return this.positions[cell] >= 0;
+    }
+
+    void add(int cell) {
+        if (contains(cell))
+            return;
+        this.cells[this.size] = cell;
+        this.positions[cell] = this.size;
+        this.size++;
+    }
+
+    void remove(int cell) {
+        int position = this.positions[cell];
+        if (position < 0)
+            return;
+        int last = this.cells[--this.size];
+        this.cells[position] = last;
+        this.positions[last] = position;
+        this.positions[cell] = -1;
+    }
+
+    /**
+     * Returns the cell at the given position. Removing a cell changes the positions of other cells,
+     * so cells should be removed while iterating from the last position to the first.
+     * @param position Position between 0 and size() - 1
+     * @return Index of the cell
+     */
+    int get(int position) {
+        return this.cells[position];
+    }
+
+    /**
+     * Returns a random cell of the pool without removing it.
+     * @param random Random number generator
+     * @return Index of the cell
+     * @throws IllegalStateException if the pool is empty
+     */
+    int pick(Random random) {
+        if (this.size == 0) {
+            throw new IllegalStateException("The pool is empty.");
+        }
+        return this.cells[random.nextInt(this.size)];
+    }
+}
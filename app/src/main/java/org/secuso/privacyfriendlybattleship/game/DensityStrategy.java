@@ -0,0 +1,93 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Random;
+
+/**
+ * This strategy attacks the untried cell covered by the most placements of the remaining ships.
+ * Placements covering water or a sunk ship are impossible, placements covering hit cells of ships
+ * not sunk yet are preferred. The weights are maintained incrementally, cf. ProbabilityMap. They
+ * are scaled by the cells the player has placed ships on in previous games, cf. PlacementHabits.
+ */
+
+final class DensityStrategy implements AIStrategy {
+
+    private ProbabilityMap map;
+    private long[] cellWeights;//reused for every move
+    private PlacementHabits habits;//loaded on the first move, which runs in the background
+
+    @Override
+    public void reset(AIBoard board) {
+        this.map = new ProbabilityMap(board);
+        this.cellWeights = new long[board.getCellCount()];
+        this.habits = null;
+    }
+
+    @Override
+    public int chooseTarget(AIBoard board, Random random) {
+        this.map.getWeights(board, this.cellWeights);
+        if (this.habits == null) {
+            this.habits = PlacementHabits.forGridSize(board.getGridSize());
+        }
+        this.habits.applyTo(this.cellWeights);
+        return findHeaviestCell(board, this.cellWeights, random);
+    }
+
+    /**
+     * Returns the untried cell with the highest weight. Ties are broken randomly.
+     * @param board The board attacked by the AI
+     * @param cellWeights Weight of each cell
+     * @param random Random number generator
+     * @return Index of the cell
+     */
+    static int findHeaviestCell(AIBoard board, long[] cellWeights, Random random) {
+        int bestCell = -1;
+        long bestWeight = -1;
+        int ties = 0;
+        for (int cell = 0; cell < cellWeights.length; cell++) {
+            if (!board.isUntried(cell))
+                continue;
+            long weight = cellWeights[cell];
+            if (weight > bestWeight) {
+                bestWeight = weight;
+                bestCell = cell;
+                ties = 1;
+            } else if (weight == bestWeight && random.nextInt(++ties) == 0) {
+                bestCell = cell;
+            }
+        }
+        return bestCell;
+    }
+
+    @Override
+    public void onResult(AIBoard board, int cell, MoveResult result) {
+        this.map.onResult(cell, result);
+    }
+
+    @Override
+    public long getTimeBudget() {
+        return 0;
+    }
+
+    @Override
+    public void setTimeBudget(long millis) {
+    }
+}
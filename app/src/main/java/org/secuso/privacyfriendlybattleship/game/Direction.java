@@ -30,8 +30,7 @@ import java.util.Random;
 public enum Direction {
     NORTH, EAST, SOUTH, WEST;
 
-    public static Direction getRandomDirection() {
-        Random ranGen = new Random();
+    public static Direction getRandomDirection(Random ranGen) {
         int direction = ranGen.nextInt(4);
         if (direction == 0) return NORTH;
         else if (direction == 1) return EAST;
@@ -0,0 +1,479 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * This class enumerates every layout of the remaining ships which is consistent with what the AI
+ * knows about the grid, and counts for every cell the layouts in which the cell contains a ship.
+ * Dividing by the number of layouts yields the exact probability of each cell to contain a ship.
+ *
+ * The layouts are enumerated by a depth-first search placing one ship after another, using the
+ * bitmasks of PlacementTable. The number of layouts and cell counts of the remaining ships only
+ * depend on the index of the next ship and on the occupied cells, so they are memoised on these.
+ * Ships are placed in a fixed order, so each layout is counted once for every order of the ships of
+ * equal size. This factor is the same for all cells and therefore does not change the probabilities.
+ *
+ * Enumerating all layouts is only feasible late in the game. solve() therefore gives up if an upper
+ * bound for the number of layouts or the number of memoised states exceeds a limit. The most likely
+ * cell is the best shot for the next move, but not necessarily for the rest of the game.
+ *
+ * Once at most EXACT_LAYOUT_LIMIT distinct layouts are left, which is the endgame, findBestShot()
+ * lists them and searches the shot which minimises the expected number of shots needed to sink the
+ * remaining ships, assuming every layout is equally likely. A shot splits the layouts into those in
+ * which it misses, hits or sinks a ship, the latter by the sunk ship, since sinking reveals the
+ * cells of the ship. The expected numbers are memoised on the remaining layouts and the cells shot.
+ */
+
+final class EndgameSolver {
+
+    // Limit for the product of the numbers of legal placements of the remaining ships
+    private static final long LAYOUT_LIMIT = 1L << 16;
+    // Limit for the number of memoised states, which bounds time and memory of the search
+    private static final int MAX_STATES = 4096;
+    // Number of distinct layouts from which on the shots minimising the expected number of shots are searched
+    static final int EXACT_LAYOUT_LIMIT = 24;
+    // Limit for the number of positions evaluated by findBestShot()
+    private static final int MAX_POSITIONS = 20000;
+
+    private static final Result NO_LAYOUT = new Result(0, null);
+    private static final Result EMPTY_LAYOUT = new Result(1, null);
+
+    private final int gridSize;
+    private final int cellCount;
+    private final Map<State, Result> memo = new HashMap<>();
+    private final long[] cellCounts;
+
+    private int[] shipSizes;
+    private int[] remainingCells;//number of cells covered by the ships from each index on
+    private long[] hits;
+    private long[][] occupied;//occupied cells before placing the ship at each index
+    private long layoutCount;
+    private boolean aborted;
+
+    private final long[][][] layouts = new long[EXACT_LAYOUT_LIMIT][][];//ship masks of each distinct layout
+    private final long[][] layoutCells = new long[EXACT_LAYOUT_LIMIT][];//cells of each distinct layout
+    private int distinctLayouts;
+    private final Map<State, Double> expectedShots = new HashMap<>();
+
+    EndgameSolver(int gridSize) {
+        this.gridSize = gridSize;
+        this.cellCount = gridSize * gridSize;
+        this.cellCounts = new long[this.cellCount];
+    }
+
+    /**
+     * Enumerates the layouts of the remaining ships on the given board.
+     * @param board The board attacked by the AI
+     * @return False if there are too many layouts or no consistent layout at all
+     */
+    boolean solve(AIBoard board) {
+        this.shipSizes = toShipSizes(board);
+        if (estimateLayouts(board.getBlockedCells()) > LAYOUT_LIMIT) {
+            return false;
+        }
+
+        int words = BitBoard.words(this.cellCount);
+        this.remainingCells = new int[this.shipSizes.length + 1];
+        for (int i = this.shipSizes.length - 1; i >= 0; i--) {
+            this.remainingCells[i] = this.remainingCells[i + 1] + this.shipSizes[i];
+        }
+        this.hits = board.getHitCells();
+        this.occupied = new long[this.shipSizes.length + 1][words];
+        System.arraycopy(board.getBlockedCells(), 0, this.occupied[0], 0, words);
+        this.aborted = false;
+        this.memo.clear();
+
+        Result result = count(0);
+        this.memo.clear();
+        if (this.aborted || result.layouts == 0) {
+            return false;
+        }
+        this.layoutCount = result.layouts;
+        if (result.cellCounts == null) {
+            Arrays.fill(this.cellCounts, 0L);
+        } else {
+            System.arraycopy(result.cellCounts, 0, this.cellCounts, 0, this.cellCount);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of layouts found by the last successful call of solve().
+     */
+    long getLayoutCount() {
+        return layoutCount;
+    }
+
+    /**
+     * Returns the number of layouts in which each cell contains a ship, as found by the last
+     * successful call of solve().
+     */
+    long[] getCellCounts() {
+        return cellCounts;
+    }
+
+    /**
+     * Returns the shot which minimises the expected number of shots needed to sink the remaining
+     * ships on the board passed to the last successful call of solve(). Shots which are equally good
+     * are chosen randomly.
+     * @param random Random number generator
+     * @return Index of the cell, or -1 if there are more than EXACT_LAYOUT_LIMIT distinct layouts
+     * or the search is too expensive
+     */
+    int findBestShot(Random random) {
+        // solve() counts each layout once for every order of the ships of equal size
+        long orders = 1;
+        for (int i = 1, equal = 1; i < this.shipSizes.length; i++) {
+            equal = this.shipSizes[i] == this.shipSizes[i - 1] ? equal + 1 : 1;
+            orders *= equal;
+        }
+        if (this.layoutCount / orders > EXACT_LAYOUT_LIMIT) {
+            return -1;
+        }
+
+        this.distinctLayouts = 0;
+        this.aborted = false;
+        int words = BitBoard.words(this.cellCount);
+        long[][] ships = new long[this.shipSizes.length][];
+        listLayouts(0, -1, ships);
+        if (this.aborted || this.distinctLayouts == 0) {
+            return -1;
+        }
+
+        long[] shots = this.hits.clone();
+        int all = (int) ((1L << this.distinctLayouts) - 1);
+        this.expectedShots.clear();
+        int bestCell = -1;
+        double bestValue = Double.MAX_VALUE;
+        int ties = 0;
+        long[] candidates = getUnshotCells(all, shots, words);
+        for (int cell = 0; cell < this.cellCount; cell++) {
+            if (!BitBoard.get(candidates, cell))
+                continue;
+            double value = evaluateShot(all, shots, cell);
+            if (this.aborted) {
+                this.expectedShots.clear();
+                return -1;
+            }
+            if (value < bestValue - 1e-9) {
+                bestValue = value;
+                bestCell = cell;
+                ties = 1;
+            } else if (value <= bestValue + 1e-9 && random.nextInt(++ties) == 0) {
+                bestCell = cell;
+            }
+        }
+        this.expectedShots.clear();
+        return bestCell;
+    }
+
+    /**
+     * Lists the distinct layouts of the ships from the given index on. Ships of equal size are
+     * placed in increasing order of their placements, so each layout is listed once.
+     */
+    private void listLayouts(int shipIndex, int previousPlacement, long[][] ships) {
+        long[] occupied = this.occupied[shipIndex];
+        int uncoveredHits = 0;
+        for (int i = 0; i < occupied.length; i++) {
+            uncoveredHits += Long.bitCount(this.hits[i] & ~occupied[i]);
+        }
+        if (uncoveredHits > this.remainingCells[shipIndex]) {
+            return;
+        }
+        if (shipIndex == this.shipSizes.length) {
+            if (this.distinctLayouts == EXACT_LAYOUT_LIMIT) {
+                this.aborted = true;
+                return;
+            }
+            long[][] layout = new long[ships.length][];
+            long[] cells = new long[occupied.length];
+            for (int i = 0; i < ships.length; i++) {
+                layout[i] = ships[i].clone();
+                for (int j = 0; j < cells.length; j++) {
+                    cells[j] |= ships[i][j];
+                }
+            }
+            this.layouts[this.distinctLayouts] = layout;
+            this.layoutCells[this.distinctLayouts] = cells;
+            this.distinctLayouts++;
+            return;
+        }
+
+        boolean sameSize = shipIndex > 0 && this.shipSizes[shipIndex - 1] == this.shipSizes[shipIndex];
+        long[] next = this.occupied[shipIndex + 1];
+        int placement = 0;//index of the placement among both axes
+        for (Direction axis : new Direction[] {Direction.WEST, Direction.NORTH}) {
+            PlacementTable table = PlacementTable.get(this.gridSize, this.shipSizes[shipIndex], axis);
+            for (int i = 0; i < table.getCount(); i++, placement++) {
+                if ((sameSize && placement <= previousPlacement) || table.intersects(i, occupied))
+                    continue;
+                long[] ship = new long[occupied.length];
+                table.addTo(i, ship);
+                ships[shipIndex] = ship;
+                System.arraycopy(occupied, 0, next, 0, next.length);
+                table.addTo(i, next);
+                listLayouts(shipIndex + 1, placement, ships);
+                if (this.aborted)
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Returns the expected number of shots needed to sink the remaining ships, provided that one of
+     * the given layouts is on the grid and the given cells have been shot.
+     * @param layouts Set of indices of the layouts
+     * @param shots Cells which have been shot
+     */
+    private double getExpectedShots(int layouts, long[] shots) {
+        long[] candidates = getUnshotCells(layouts, shots, shots.length);
+        if (BitBoard.isEmpty(candidates)) {
+            return 0;
+        }
+        if (Integer.bitCount(layouts) == 1) {
+            return BitBoard.cardinality(candidates);
+        }
+        State state = new State(layouts, shots);//the set of layouts takes the place of the ship index
+        Double known = this.expectedShots.get(state);
+        if (known != null) {
+            return known;
+        }
+        if (this.expectedShots.size() >= MAX_POSITIONS) {
+            this.aborted = true;
+            return 0;
+        }
+
+        double best = Double.MAX_VALUE;
+        for (int cell = 0; cell < this.cellCount; cell++) {
+            if (!BitBoard.get(candidates, cell))
+                continue;
+            best = Math.min(best, evaluateShot(layouts, shots, cell));
+            if (this.aborted)
+                return 0;
+        }
+        this.expectedShots.put(state, best);
+        return best;
+    }
+
+    /**
+     * Returns the expected number of shots needed to sink the remaining ships if the given cell is
+     * shot next.
+     */
+    private double evaluateShot(int layouts, long[] shots, int cell) {
+        long[] nextShots = shots.clone();
+        BitBoard.set(nextShots, cell);
+        int misses = 0;
+        int hits = 0;
+        int[] sunkLayouts = new int[this.distinctLayouts];//layouts grouped by the ship sunk by the shot
+        long[][] sunkShips = new long[this.distinctLayouts][];
+        int sunkGroups = 0;
+        for (int layout = 0; layout < this.distinctLayouts; layout++) {
+            if ((layouts & (1 << layout)) == 0)
+                continue;
+            long[] ship = findShip(layout, cell);
+            if (ship == null) {
+                misses |= 1 << layout;
+            } else if (!BitBoard.isSubsetOf(ship, nextShots)) {
+                hits |= 1 << layout;
+            } else {
+                int group = 0;
+                while (group < sunkGroups && !Arrays.equals(sunkShips[group], ship)) {
+                    group++;
+                }
+                if (group == sunkGroups) {
+                    sunkShips[sunkGroups++] = ship;
+                }
+                sunkLayouts[group] |= 1 << layout;
+            }
+        }
+
+        double shotsAfter = 0;
+        if (misses != 0) {
+            shotsAfter += Integer.bitCount(misses) * getExpectedShots(misses, nextShots);
+        }
+        if (hits != 0) {
+            shotsAfter += Integer.bitCount(hits) * getExpectedShots(hits, nextShots);
+        }
+        for (int group = 0; group < sunkGroups; group++) {
+            shotsAfter += Integer.bitCount(sunkLayouts[group]) * getExpectedShots(sunkLayouts[group], nextShots);
+        }
+        return 1 + shotsAfter / Integer.bitCount(layouts);
+    }
+
+    private long[] findShip(int layout, int cell) {
+        for (long[] ship : this.layouts[layout]) {
+            if (BitBoard.get(ship, cell)) {
+                return ship;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the cells covered by at least one of the given layouts which have not been shot.
+     */
+    private long[] getUnshotCells(int layouts, long[] shots, int words) {
+        long[] cells = new long[words];
+        for (int layout = 0; layout < this.distinctLayouts; layout++) {
+            if ((layouts & (1 << layout)) == 0)
+                continue;
+            for (int i = 0; i < words; i++) {
+                cells[i] |= this.layoutCells[layout][i] & ~shots[i];
+            }
+        }
+        return cells;
+    }
+
+    private Result count(int shipIndex) {
+        long[] occupied = this.occupied[shipIndex];
+        int uncoveredHits = 0;
+        for (int i = 0; i < occupied.length; i++) {
+            uncoveredHits += Long.bitCount(this.hits[i] & ~occupied[i]);
+        }
+        if (shipIndex == this.shipSizes.length) {
+            return uncoveredHits == 0 ? EMPTY_LAYOUT : NO_LAYOUT;
+        }
+        if (uncoveredHits > this.remainingCells[shipIndex]) {
+            return NO_LAYOUT;
+        }
+
+        State state = new State(shipIndex, occupied);
+        Result result = this.memo.get(state);
+        if (result != null) {
+            return result;
+        }
+        if (this.memo.size() >= MAX_STATES) {
+            this.aborted = true;
+            return NO_LAYOUT;
+        }
+
+        long layouts = 0;
+        long[] cellCounts = null;
+        long[] next = this.occupied[shipIndex + 1];
+        for (Direction axis : new Direction[] {Direction.WEST, Direction.NORTH}) {
+            PlacementTable table = PlacementTable.get(this.gridSize, this.shipSizes[shipIndex], axis);
+            for (int i = 0; i < table.getCount(); i++) {
+                if (table.intersects(i, occupied))
+                    continue;
+                System.arraycopy(occupied, 0, next, 0, next.length);
+                table.addTo(i, next);
+                Result rest = count(shipIndex + 1);
+                if (this.aborted) {
+                    return NO_LAYOUT;
+                }
+                if (rest.layouts == 0)
+                    continue;
+
+                if (cellCounts == null) {
+                    cellCounts = new long[this.cellCount];
+                }
+                layouts += rest.layouts;
+                if (rest.cellCounts != null) {
+                    for (int cell = 0; cell < this.cellCount; cell++) {
+                        cellCounts[cell] += rest.cellCounts[cell];
+                    }
+                }
+                table.addWeight(i, rest.layouts, cellCounts);
+            }
+        }
+
+        result = layouts == 0 ? NO_LAYOUT : new Result(layouts, cellCounts);
+        this.memo.put(new State(shipIndex, occupied.clone()), result);
+        return result;
+    }
+
+    private long estimateLayouts(long[] blocked) {
+        long estimate = 1;
+        for (int size : this.shipSizes) {
+            long placements = 0;
+            for (Direction axis : new Direction[] {Direction.WEST, Direction.NORTH}) {
+                PlacementTable table = PlacementTable.get(this.gridSize, size, axis);
+                for (int i = 0; i < table.getCount(); i++) {
+                    if (!table.intersects(i, blocked)) {
+                        placements++;
+                    }
+                }
+            }
+            estimate *= Math.max(placements, 1);
+            if (estimate > LAYOUT_LIMIT) {
+                return estimate;
+            }
+        }
+        return estimate;
+    }
+
+    private static int[] toShipSizes(AIBoard board) {
+        int count = 0;
+        for (int size = 2; size <= 5; size++) {
+            count += board.getRemainingShips(size);
+        }
+        // Largest ships first, they have the fewest placements
+        int[] shipSizes = new int[count];
+        int index = 0;
+        for (int size = 5; size >= 2; size--) {
+            for (int i = 0; i < board.getRemainingShips(size); i++) {
+                shipSizes[index++] = size;
+            }
+        }
+        return shipSizes;
+    }
+
+    private static final class State {
+
+        private final int shipIndex;
+        private final long[] occupied;
+        private final int hash;
+
+        State(int shipIndex, long[] occupied) {
+            this.shipIndex = shipIndex;
+            this.occupied = occupied;
+            this.hash = 31 * Arrays.hashCode(occupied) + shipIndex;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof State))
+                return false;
+            State state = (State) other;
+            return this.shipIndex == state.shipIndex && Arrays.equals(this.occupied, state.occupied);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Result {
+
+        final long layouts;
+        final long[] cellCounts;//null if no cell is covered, i.e. for the empty layout
+
+        Result(long layouts, long[] cellCounts) {
+            this.layouts = layouts;
+            this.cellCounts = cellCounts;
+        }
+    }
+}
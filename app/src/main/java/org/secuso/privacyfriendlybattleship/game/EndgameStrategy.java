@@ -0,0 +1,74 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Random;
+
+/**
+ * This strategy attacks the cell which is most likely to contain a ship, computed exactly by
+ * enumerating all consistent layouts of the remaining ships, cf. EndgameSolver. This is only
+ * feasible late in the game. As long as there are too many layouts, the moves are chosen by the
+ * given fallback strategy. In the endgame, once at most EndgameSolver.EXACT_LAYOUT_LIMIT distinct
+ * layouts are left, it instead attacks the cell which minimises the expected number of shots needed
+ * to sink the remaining ships. It is used by the expert mode on top of the MonteCarloStrategy.
+ */
+
+final class EndgameStrategy implements AIStrategy {
+
+    private final AIStrategy fallback;
+    private EndgameSolver solver;
+
+    EndgameStrategy(AIStrategy fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void reset(AIBoard board) {
+        this.fallback.reset(board);
+        this.solver = new EndgameSolver(board.getGridSize());
+    }
+
+    @Override
+    public int chooseTarget(AIBoard board, Random random) {
+        if (this.solver.solve(board)) {
+            int cell = this.solver.findBestShot(random);
+            if (cell >= 0) {
+                return cell;
+            }
+            return DensityStrategy.findHeaviestCell(board, this.solver.getCellCounts(), random);
+        }
+        return this.fallback.chooseTarget(board, random);
+    }
+
+    @Override
+    public void onResult(AIBoard board, int cell, MoveResult result) {
+        this.fallback.onResult(board, cell, result);
+    }
+
+    @Override
+    public long getTimeBudget() {
+        return this.fallback.getTimeBudget();
+    }
+
+    @Override
+    public void setTimeBudget(long millis) {
+        this.fallback.setTimeBudget(millis);
+    }
+}
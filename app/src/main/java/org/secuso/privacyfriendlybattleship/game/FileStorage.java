@@ -0,0 +1,144 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This class provides the background thread the game files are written on, such that the UI thread
+ * does not wait for the disk, cf. GameJournal and GameHistory, and helpers to write files safely.
+ *
+ * It also provides the directory the AI stores what it has learned or precomputed in, cf.
+ * PlacementHabits and OpeningBook. These files are caches: if they cannot be read or written, the
+ * AI works as before. If no directory has been set, e.g. in the AITournament, they are not stored.
+ */
+
+public final class FileStorage {
+
+    /**
+     * Writes the content of a file.
+     */
+    interface Content {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private static File directory;
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FileStorage");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private FileStorage() {
+    }
+
+    /**
+     * Sets the directory the files are stored in.
+     * @param directory App-private directory, e.g. Context.getFilesDir()
+     */
+    public static synchronized void setDirectory(File directory) {
+        FileStorage.directory = directory;
+    }
+
+    /**
+     * Returns the file with the given name in the storage directory.
+     * @param name Name of the file
+     * @return The file or null if no directory has been set
+     */
+    static synchronized File getFile(String name) {
+        return directory == null ? null : new File(directory, name);
+    }
+
+    /**
+     * Runs the given task on the storage thread. Tasks are run one at a time in the order they
+     * have been submitted.
+     */
+    static void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Waits until the tasks submitted so far have been run, e.g. before a file written in the
+     * background is read.
+     */
+    static void await() {
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The empty task cannot fail
+        }
+    }
+
+    /**
+     * Writes the given content to a temporary file and replaces the file with it afterwards, such
+     * that the file is never left half written.
+     * @param file File to be replaced
+     * @param content Content of the file
+     * @return False if the file could not be written
+     */
+    static boolean replace(File file, Content content) {
+        File temporary = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+            content.writeTo(out);
+            out.close();
+            out = null;
+            if (temporary.renameTo(file)) {
+                return true;
+            }
+        } catch (IOException e) {
+            // Handled below
+        } finally {
+            close(out);
+        }
+        temporary.delete();
+        return false;
+    }
+
+    static void close(Closeable stream) {
+        if (stream == null)
+            return;
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // Nothing left to do
+        }
+    }
+}
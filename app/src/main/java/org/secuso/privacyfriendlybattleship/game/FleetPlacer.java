@@ -0,0 +1,169 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class computes a random legit placement for a fleet of ships. Each ship is drawn uniformly
+ * from the placements which are still legal after placing the previous ships. If a ship does not
+ * fit anymore, the placer backtracks. Every search is bounded by a budget of placement attempts and
+ * restarted with a doubled budget once it is exceeded. The last search is unbounded and therefore
+ * exhaustive, which guarantees termination. If ships have to keep a distance, a ship also blocks
+ * the cells next to it.
+ *
+ * A placement is encoded as (index << 1) | axis, where index is the index of the placement in the
+ * PlacementTable of the axis. Tables for ships facing in opposite directions enumerate placements in
+ * the same order, so the index is valid for both directions along the axis.
+ */
+
+final class FleetPlacer {
+
+    static final int HORIZONTAL = 0;
+    static final int VERTICAL = 1;
+
+    private static final int BUDGET_PER_SHIP = 256;
+    private static final int MAX_RESTARTS = 8;
+
+    private final int gridSize;
+    private final int[] shipSizes;
+    private final boolean keepDistance;
+    private final Random random;
+    private final long[][] blocked;//cells blocked by the ships placed before the ship at each index
+    private final int[][] candidates;
+    private final int[] placements;
+
+    private long budget;
+    private boolean budgetExceeded;
+
+    /**
+     * @param gridSize Size of the grid
+     * @param shipSizes Sizes of the ships to be placed. Placing large ships first reduces the
+     *                  number of dead ends.
+     * @param keepDistance True if ships must not touch each other
+     * @param random Random number generator used for the placement
+     */
+    FleetPlacer(int gridSize, int[] shipSizes, boolean keepDistance, Random random) {
+        this.gridSize = gridSize;
+        this.shipSizes = shipSizes;
+        this.keepDistance = keepDistance;
+        this.random = random;
+        this.blocked = new long[shipSizes.length + 1][BitBoard.words(gridSize * gridSize)];
+        this.candidates = new int[shipSizes.length][2 * gridSize * gridSize];
+        this.placements = new int[shipSizes.length];
+    }
+
+    static int getTableIndex(int placement) {
+        return placement >>> 1;
+    }
+
+    static int getAxis(int placement) {
+        return placement & 1;
+    }
+
+    private PlacementTable getTable(int size, int axis) {
+        return PlacementTable.get(this.gridSize, size, axis == HORIZONTAL ? Direction.WEST : Direction.NORTH);
+    }
+
+    /**
+     * Places all ships.
+     * @return The placement of each ship, in the order of the ship sizes
+     * @throws IllegalStateException if the ships cannot be placed on the grid
+     */
+    int[] place() {
+        long attemptBudget = (long) BUDGET_PER_SHIP * this.shipSizes.length;
+        for (int restart = 0; restart <= MAX_RESTARTS; restart++) {
+            this.budget = restart == MAX_RESTARTS ? Long.MAX_VALUE : attemptBudget;
+            this.budgetExceeded = false;
+            Arrays.fill(this.blocked[0], 0L);
+
+            if (placeFrom(0)) {
+                return this.placements;
+            }
+            if (!this.budgetExceeded) {
+                // The whole search tree has been visited.
+                break;
+            }
+            attemptBudget *= 2;
+        }
+        throw new IllegalStateException("The ships do not fit on the grid.");
+    }
+
+    private boolean placeFrom(int shipIndex) {
+        if (shipIndex == this.shipSizes.length) {
+            return true;
+        }
+
+        int size = this.shipSizes[shipIndex];
+        int[] legal = this.candidates[shipIndex];
+        int count = collectLegalPlacements(size, this.blocked[shipIndex], legal);
+        while (count > 0) {
+            if (--this.budget < 0) {
+                this.budgetExceeded = true;
+                return false;
+            }
+
+            // Draw one of the remaining placements and remove it from the candidates
+            int pick = this.random.nextInt(count);
+            int placement = legal[pick];
+            legal[pick] = legal[--count];
+
+            block(placement, size, shipIndex);
+            if (placeFrom(shipIndex + 1)) {
+                this.placements[shipIndex] = placement;
+                return true;
+            }
+
+            if (this.budgetExceeded) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private int collectLegalPlacements(int size, long[] blocked, int[] legal) {
+        int count = 0;
+        for (int axis = HORIZONTAL; axis <= VERTICAL; axis++) {
+            PlacementTable table = getTable(size, axis);
+            for (int i = 0; i < table.getCount(); i++) {
+                if (!table.intersects(i, blocked)) {
+                    legal[count++] = (i << 1) | axis;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Computes the cells blocked for the next ship, i.e. the cells blocked for the ship at the given
+     * index plus the cells blocked by its placement.
+     */
+    private void block(int placement, int size, int shipIndex) {
+        long[] next = this.blocked[shipIndex + 1];
+        System.arraycopy(this.blocked[shipIndex], 0, next, 0, next.length);
+        PlacementTable table = getTable(size, getAxis(placement));
+        if (this.keepDistance) {
+            table.addHaloTo(getTableIndex(placement), next);
+        } else {
+            table.addTo(getTableIndex(placement), next);
+        }
+    }
+}
@@ -19,7 +19,7 @@
 
 /**
  * This class represents the AI for the battleships game. The AI can be
- * initialized in one of two difficulty levels and and will make its
+ * initialized in one of three difficulty levels and and will make its
  * moves accordingly.
  *
  * @author Alexander Müller, Ali Kalsen
@@ -27,35 +27,22 @@
 
 package org.secuso.privacyfriendlybattleship.game;
 
-import android.os.Parcel;
-import android.os.Parcelable;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-
 /**
  * Created by Alexander Müller on 16.12.2016.
  */
 
-public class GameAI implements Parcelable{
+public class GameAI {
 
-    private enum Cell {
-        UNKNOWN(0), WATER(1), SHIP(2);
-
-        int val;
-        Cell(int i) {
-            val = i;
-        }
-    }
+    private static final long SEED_SALT = 0x632BE59BD9B4E019L;
 
-    private int[][] gridUnderAttack;//represents the opponents grid; 0: unknown, 1: ship, 2: water
+    private AIBoard board;//what the AI knows about the opponents grid
+    private AIStrategy strategy;
     private boolean hasAIWon;
     private int gridSize;
     private GameMode mode;
     private GameController controller;
-    private Random ranGen;
-    private List<int[]> shipCandidates = new ArrayList();
+    private GameRandom ranGen;
+    private long seed;//seed of the first move, cf. chooseTarget()
 
 
     public GameAI(int gridSize, GameMode mode, GameController controller) {
@@ -63,178 +50,90 @@ public class GameAI implements Parcelable{
             throw new IllegalArgumentException("No AI possible in player vs player matches.");
         }
         this.gridSize = gridSize;
-        this.gridUnderAttack = new int[this.gridSize][this.gridSize];
         this.mode = mode;
         this.controller = controller;
 
-        //initialize local grid
-        for(int i = 0; i < this.gridSize*this.gridSize; i++) {
-            this.gridUnderAttack[i / this.gridSize][i % this.gridSize] = Cell.UNKNOWN.val;
-        }
-
-        //initialize random number generator
-        this.ranGen = new Random();
-        this.hasAIWon = false;
+        //the AI knows the opponents fleet and the moves made so far, e.g. if the game has been restored
+        GameGrid attackedGrid = controller.getGridFirstPlayer();
+        this.board = AIBoard.observe(attackedGrid);
+        setStrategy(mode.createAIStrategy());
+
+        //the random decisions of the AI are determined by the seed of the game, but the AI does not
+        //draw from the generator of the game, cf. chooseTarget()
+        this.seed = controller.getSeed() ^ SEED_SALT;
+        this.ranGen = new GameRandom(this.seed);
+        //a fleet which has not been placed yet counts as destroyed, cf. GameShipSet.allShipsDestroyed()
+        GameShipSet shipSet = attackedGrid.getShipSet();
+        this.hasAIWon = shipSet.allShipsPlaced() && shipSet.allShipsDestroyed();
     }
 
     public void makeMove() {
-        if(this.mode == GameMode.VS_AI_EASY) {
-            makeRandomMove();
-            this.controller.switchPlayers();
-        } else if(this.mode == GameMode.VS_AI_HARD) {
-            makeSmartMove();
-            this.controller.switchPlayers();
-        }
+        makeMove(chooseTarget());
     }
 
-    private boolean makeRandomMove(){
-        int col;
-        int row;
-
-        //get random coordinate to attack
-        do {
-            col = ranGen.nextInt(this.gridSize);
-            row = ranGen.nextInt(this.gridSize);
-        } while (this.gridUnderAttack[col][row] != Cell.UNKNOWN.val);
-
-        //attack opponent and update local grid
-        boolean isHit = this.controller.makeMove(true, col, row);
-
-        if ( isHit ) {
-            this.gridUnderAttack[col][row] = Cell.SHIP.val;
-            // Check if the AI has won set hasAIWon to true in that case.
-            if (this.controller.gridUnderAttack().getShipSet().allShipsDestroyed() ){
-                this.hasAIWon = true;
-                return false;
-            }
-        } else {
-            this.gridUnderAttack[col][row] = Cell.WATER.val;
-        }
-
-        return isHit;
-    }
-
-    private boolean makeSmartMove() {
-        if ( this.shipCandidates.isEmpty() ){
-            return makeSearchingMove();
-        } else {
-            return makeCandidateMove();
-        }
+    /**
+     * Chooses the cell the AI attacks next without attacking it. The choice only depends on what
+     * the AI knows about the opponents grid, which does not change until the AI attacks. It can
+     * therefore be computed in the background during the turn of the player, cf. AIMoveExecutor.
+     * @return Index of the cell to attack
+     */
+    public int chooseTarget() {
+        // Move n of the AI (counting from 0) uses the seed (game seed ^ SEED_SALT) + n. The
+        // choice therefore only depends on the seed of the game and the board, so a move which has
+        // been chosen in the background and discarded, cf. AIMoveExecutor, neither uses up draws of
+        // the game nor changes the following moves.
+        this.ranGen.setSeed(this.seed + this.controller.getAttemptsPlayerTwo());
+        return this.strategy.chooseTarget(this.board, this.ranGen);
     }
 
-    private boolean makeSearchingMove(){
-        int col;
-        int row;
-
-        //get random coordinate to attack; choose no adjacent coordinates;
-        do {
-            col = ranGen.nextInt(this.gridSize);
-            row = ranGen.nextInt(this.gridSize);
-        } while (this.gridUnderAttack[col][row] != Cell.UNKNOWN.val || (col + row)%2 != 1 );
+    /**
+     * Attacks the given cell, updates the local grid and switches the players.
+     * @param cell Index of the cell to attack, as returned by chooseTarget
+     */
+    public void makeMove(int cell) {
+        int col = cell % this.gridSize;
+        int row = cell / this.gridSize;
 
         //attack opponent and update local grid
-        boolean isHit = this.controller.makeMove(true, col, row);
-
-        if ( isHit ) {
-            this.gridUnderAttack[col][row] = Cell.SHIP.val;
-
-            //add adjacent cells to candidates
-            if (isValidTarget(col - 1, row)) this.shipCandidates.add(new int[] {col-1, row});
-            if (isValidTarget(col + 1, row)) this.shipCandidates.add(new int[] {col+1, row});
-            if (isValidTarget(col, row - 1)) this.shipCandidates.add(new int[] {col, row-1});
-            if (isValidTarget(col, row + 1)) this.shipCandidates.add(new int[] {col, row+1});
-
-            // Check if the AI has won
-            if (this.controller.gridUnderAttack().getShipSet().allShipsDestroyed() ){
-                this.hasAIWon = true;
-                return false;
-            }
-        } else {
-            this.gridUnderAttack[col][row] = Cell.WATER.val;
-        }
-
-        return isHit;
-    }
+        MoveResult result = this.controller.makeMove(true, col, row);
+        this.board.record(cell, result);
+        this.strategy.onResult(this.board, cell, result);
 
-    private boolean makeCandidateMove() {
-        int index = this.ranGen.nextInt(this.shipCandidates.size());
-        int col = this.shipCandidates.get(index)[0];
-        int row = this.shipCandidates.get(index)[1];
-        this.shipCandidates.remove(index);
-
-        //attack opponent and update local grid
-        if (!isValidTarget(col, row)){
-            return true;
+        // Check if the AI has won
+        if ( result.isFleetDestroyed() ) {
+            this.hasAIWon = true;
         }
-        boolean isHit = this.controller.makeMove(true, col, row);
-
-        if ( isHit ) {
-            this.gridUnderAttack[col][row] = Cell.SHIP.val;
-
-            //add adjacent cells to candidates
-            if (isValidTarget(col - 1, row)) this.shipCandidates.add(new int[] {col-1, row});
-            if (isValidTarget(col + 1, row)) this.shipCandidates.add(new int[] {col+1, row});
-            if (isValidTarget(col, row - 1)) this.shipCandidates.add(new int[] {col, row-1});
-            if (isValidTarget(col, row + 1)) this.shipCandidates.add(new int[] {col, row+1});
-
-            // Check if the AI has won set hasAIWon to true in that case.
-            if (this.controller.gridUnderAttack().getShipSet().allShipsDestroyed() ){
-                this.hasAIWon = true;
-                return false;
-            }
-        } else {
-            this.gridUnderAttack[col][row] = Cell.WATER.val;
-        }
-
-        return isHit;
+        this.controller.switchPlayers();
     }
 
-    private boolean isValidTarget(int col, int row) {
-        if (col < 0 || col >= this.gridSize || row < 0 || row >= this.gridSize)
-            return false;
-        if (this.gridUnderAttack[col][row] != Cell.UNKNOWN.val)
-            return false;
-        return true;
+    public AIStrategy getStrategy() {
+        return strategy;
     }
 
-    @Override
-    public int describeContents() { return 0; }
-
-    @Override
-    public void writeToParcel(Parcel out, int flags) {
-        out.writeInt(this.gridSize);
-        out.writeString(this.mode.name());
-        for( int i = 0; i < this.gridSize; i++) {
-            out.writeIntArray(this.gridUnderAttack[i]);
-        }
+    /**
+     * Replaces the strategy choosing the moves of the AI, e.g. to compare strategies. The new
+     * strategy continues from the current state of the game.
+     * @param strategy The new strategy
+     */
+    public void setStrategy(AIStrategy strategy) {
+        strategy.reset(this.board);
+        this.strategy = strategy;
     }
 
-    public static final Parcelable.Creator<GameAI> CREATOR = new Parcelable.Creator<GameAI>() {
-        public GameAI createFromParcel(Parcel in) {
-            return new GameAI(in);
-        }
-
-        public GameAI[] newArray(int size) {
-            return new GameAI[size];
-        }
-    };
-
-    private GameAI(Parcel in) {
-        this.gridSize = in.readInt();
-        this.mode = GameMode.valueOf( in.readString() );
-        this.gridUnderAttack = new int[this.gridSize][this.gridSize];
-        for ( int i = 0; i < this.gridSize; i++) {
-            this.gridUnderAttack[i] = in.createIntArray();
-        }
-
-        this.ranGen = new Random();
+    /**
+     * Sets the time the AI may spend on choosing one move. Only strategies which search for their
+     * moves make use of it, the move itself may take slightly longer.
+     * @param millis Time budget in milliseconds
+     */
+    public void setMoveTimeBudget(long millis) {
+        this.strategy.setTimeBudget(millis);
     }
 
-    public void setController(GameController controller) {
-        this.controller = controller;
+    public long getMoveTimeBudget() {
+        return this.strategy.getTimeBudget();
     }
 
     public boolean isAIWinner(){
         return this.hasAIWon;
     }
-}
\ No newline at end of file
+}
@@ -19,9 +19,6 @@
 
 package org.secuso.privacyfriendlybattleship.game;
 
-import android.os.Parcel;
-import android.os.Parcelable;
-
 import org.secuso.privacyfriendlybattleship.R;
 
 import static java.lang.Math.max;
@@ -29,21 +26,20 @@ import static java.lang.Math.max;
 /**
  * This class represents a cell of an battleships grid. A grid of size N
  * consists of N*N cells, each of which can be either water or part of a
- * ship.
+ * ship. The state of a cell is stored in the bitboards of its grid, a
+ * GameCell is only a view on it.
  *
  * @author Alexander Müller, Ali Kalsen
  */
 
-public class GameCell implements Parcelable{
+public class GameCell {
 
-    private int col;//Column of the Cell
-    private int row;//Row of the Cell
-    private boolean isShip = false;//false if this cell contains water, true if it contains a ship
-    private boolean isHit = false;//false if this cell was not hit yet, true if it was
-    private GameGrid grid;
+    private final int col;//Column of the Cell
+    private final int row;//Row of the Cell
+    private final GameGrid grid;
 
 
-    public GameCell(int col, int row, GameGrid grid) {
+    GameCell(int col, int row, GameGrid grid) {
         this.col = col;
         this.row = row;
         this.grid = grid;
@@ -61,20 +57,24 @@ public class GameCell implements Parcelable{
         return grid;
     }
 
+    public int getIndex() {
+        return grid.getCellIndex(col, row);
+    }
+
     public boolean isShip() {
-        return isShip;
+        return grid.isShip(col, row);
     }
 
     public boolean isHit() {
-        return isHit;
+        return grid.isHit(col, row);
     }
 
     public void setShip(boolean ship) {
-        isShip = ship;
+        grid.setShip(col, row, ship);
     }
 
     public void setHit(boolean hit) {
-        isHit = hit;
+        grid.setHit(col, row, hit);
     }
 
     /**
@@ -92,7 +92,7 @@ public class GameCell implements Parcelable{
     }
 
     public int getResourceId() {
-        if (!this.isShip) {
+        if (!this.isShip()) {
             return 0;
         }
 
@@ -142,38 +142,4 @@ public class GameCell implements Parcelable{
         return R.drawable.ic_info_black_24dp;
     }
 
-    @Override
-    public int describeContents() { return 0; }
-
-    @Override
-    public void writeToParcel(Parcel out, int flags) {
-        out.writeInt(this.col);
-        out.writeInt(this.row);
-        out.writeBooleanArray( new boolean[] {this.isShip, this.isHit} );
-    }
-
-    public static final Parcelable.Creator<GameCell> CREATOR = new Parcelable.Creator<GameCell>() {
-        public GameCell createFromParcel(Parcel in) {
-            return new GameCell(in);
-        }
-
-        public GameCell[] newArray(int size) {
-            return new GameCell[size];
-        }
-    };
-
-    private GameCell(Parcel in) {
-        this.col = in.readInt();
-        this.row = in.readInt();
-        boolean[] shipHit = new boolean[2];
-        in.readBooleanArray(shipHit);
-        this.isShip = shipHit[0];
-        this.isHit = shipHit[1];
-        this.grid = null;
-    }
-
-    void setGrid(GameGrid grid) {
-        this.grid = grid;
-    }
-
 }
@@ -21,6 +21,9 @@ public class GameController implements Parcelable {
     private boolean currentPlayer;//false if first players turn, true if second players turn
     private GameAI opponentAI;
     private int[] shipCount;
+    private GameRandom random;//Source of all randomness of the game
+    private MoveLog moveLog;
+    private GameJournal journal;//Journal the moves are written to, may be null
 
     // Amount of ships for standard grid sizes.
     private final static int[] SHIPCOUNTFIVE = {2,1,0,0};
@@ -28,15 +31,69 @@ public class GameController implements Parcelable {
 
 
     public GameController(GameMode gameMode, int gridSize, int[] shipCount) {
+        this(gameMode, gridSize, shipCount, new GameRandom());
+    }
+
+    /**
+     * Creates a game whose random decisions are determined by the given seed. Two games with the
+     * same seed place their ships and make their AI moves identically, provided that the players
+     * make the same moves. The expert AI is an exception, since the number of fleets it samples per
+     * move depends on the time available, cf. MonteCarloSampler.
+     * @param gameMode The game mode
+     * @param gridSize The size of the game board
+     * @param shipCount The amount of ships of size 2, 3, 4 and 5
+     * @param seed The seed of the random number generator of the game
+     */
+    public GameController(GameMode gameMode, int gridSize, int[] shipCount, long seed) {
+        this(gameMode, gridSize, shipCount, new GameRandom(seed));
+    }
+
+    private GameController(GameMode gameMode, int gridSize, int[] shipCount, GameRandom random) {
         this.gridSize = gridSize;
         this.mode = gameMode;
         this.currentPlayer = false;
         this.shipCount = shipCount;
+        this.random = random;
+
+        this.gridFirstPlayer = new GameGrid(gridSize, this.shipCount, this.random);
+        this.gridSecondPlayer = new GameGrid(gridSize, this.shipCount, this.random);
 
-        this.gridFirstPlayer = new GameGrid(gridSize, this.shipCount);
-        this.gridSecondPlayer = new GameGrid(gridSize, this.shipCount);
+        if (this.mode.isVsAI()) {
+            this.opponentAI = new GameAI(this.gridSize, this.mode, this);
+        } else if (this.mode == GameMode.VS_PLAYER) {
+            this.opponentAI = null;
+        }
+        this.timePlayerOne = new BattleshipsTimer();
+        this.timePlayerTwo = new BattleshipsTimer();
+        this.attemptsPlayerOne = 0;
+        this.attemptsPlayerTwo = 0;
+        this.moveLog = new MoveLog(this.gridSize);
+    }
 
-        if (this.mode == GameMode.VS_AI_EASY || this.mode == GameMode.VS_AI_HARD) {
+    /**
+     * Recreates a game from its grids, cf. GameSnapshot.
+     * @param gameMode The game mode
+     * @param random The random number generator of the game, in the state it had
+     * @param gridFirstPlayer The grid of player one
+     * @param gridSecondPlayer The grid of player two
+     * @param currentPlayer False if it is the turn of player one, true if it is the turn of player two
+     */
+    GameController(GameMode gameMode, GameRandom random, GameGrid gridFirstPlayer,
+                   GameGrid gridSecondPlayer, boolean currentPlayer) {
+        this.gridSize = gridFirstPlayer.getSize();
+        this.mode = gameMode;
+        this.currentPlayer = currentPlayer;
+        this.random = random;
+        this.gridFirstPlayer = gridFirstPlayer;
+        this.gridSecondPlayer = gridSecondPlayer;
+        GameShipSet fleet = gridFirstPlayer.getShipSet();
+        this.shipCount = new int[] {
+                fleet.getNumberOfShipsSize2(),
+                fleet.getNumberOfShipsSize3(),
+                fleet.getNumberOfShipsSize4(),
+                fleet.getNumberOfShipsSize5() };
+
+        if (this.mode.isVsAI()) {
             this.opponentAI = new GameAI(this.gridSize, this.mode, this);
         } else if (this.mode == GameMode.VS_PLAYER) {
             this.opponentAI = null;
@@ -45,6 +102,7 @@ public class GameController implements Parcelable {
         this.timePlayerTwo = new BattleshipsTimer();
         this.attemptsPlayerOne = 0;
         this.attemptsPlayerTwo = 0;
+        this.moveLog = new MoveLog(this.gridSize);
     }
 
     /**
@@ -60,21 +118,22 @@ public class GameController implements Parcelable {
         this.gridSize = gridSize;
         this.currentPlayer = false;
         this.mode = mode;
+        this.random = new GameRandom();
 
         switch (gridSize) {
             case 5:
                 this.shipCount = SHIPCOUNTFIVE;
-                this.gridFirstPlayer = new GameGrid(gridSize, SHIPCOUNTFIVE);
-                this.gridSecondPlayer = new GameGrid(gridSize, SHIPCOUNTFIVE);
+                this.gridFirstPlayer = new GameGrid(gridSize, SHIPCOUNTFIVE, this.random);
+                this.gridSecondPlayer = new GameGrid(gridSize, SHIPCOUNTFIVE, this.random);
                 break;
             default:
                 this.shipCount = SHIPCOUNTTEN;
-                this.gridFirstPlayer = new GameGrid(gridSize, SHIPCOUNTTEN);
-                this.gridSecondPlayer = new GameGrid(gridSize, SHIPCOUNTTEN);
+                this.gridFirstPlayer = new GameGrid(gridSize, SHIPCOUNTTEN, this.random);
+                this.gridSecondPlayer = new GameGrid(gridSize, SHIPCOUNTTEN, this.random);
                 break;
         }
 
-        if (this.mode == GameMode.VS_AI_EASY || this.mode == GameMode.VS_AI_HARD) {
+        if (this.mode.isVsAI()) {
             this.opponentAI = new GameAI(this.gridSize, this.mode, this);
         } else if (this.mode == GameMode.VS_PLAYER) {
             this.opponentAI = null;
@@ -83,6 +142,7 @@ public class GameController implements Parcelable {
         this.timePlayerTwo = new BattleshipsTimer();
         this.attemptsPlayerOne = 0;
         this.attemptsPlayerTwo = 0;
+        this.moveLog = new MoveLog(this.gridSize);
     }
 
     public GameGrid getGridFirstPlayer() {
@@ -106,14 +166,28 @@ public class GameController implements Parcelable {
      * @param player Current player. False for player one, true for player two.
      * @param col Column that shall be attacked.
      * @param row Row that shall be attacked.
-     * @return True if move was a hit, false if not.
+     * @return The result of the move, i.e. whether it missed, hit or sunk a ship or destroyed the
+     * whole fleet.
      */
-    public boolean makeMove(boolean player, int col, int row) {
+    public MoveResult makeMove(boolean player, int col, int row) {
         if (this.currentPlayer != player) {
             throw new IllegalArgumentException("It is the other players turn.");
         }
 
         GameCell cellUnderAttack = this.gridUnderAttack().getCell(col, row);
+        MoveResult result = attack(cellUnderAttack);
+
+        // Record the move together with the time the player has spent on it
+        long timeMillis = getTimer(player).getTimeMillis();
+        int timeDelta = (int) Math.max(timeMillis - this.moveLog.getTime(player), 0);
+        long event = this.moveLog.append(cellUnderAttack.getIndex(), player, result.getType(), timeDelta);
+        if (this.journal != null) {
+            this.journal.append(event);
+        }
+        return result;
+    }
+
+    private MoveResult attack(GameCell cellUnderAttack) {
         if ( cellUnderAttack.isHit() ) {
             throw new IllegalArgumentException("This cell has already been attacked");
         }
@@ -122,9 +196,104 @@ public class GameController implements Parcelable {
         cellUnderAttack.setHit(true);
         increaseAttempts();
 
-        //return if move was a hit
-        if( cellUnderAttack.isShip() ) return true;
-        return false;
+        if( !cellUnderAttack.isShip() ) return MoveResult.MISS;
+
+        GameShipSet shipSet = this.gridUnderAttack().getShipSet();
+        GameShip ship = shipSet.findShipContainingCell(cellUnderAttack);
+        if ( !ship.isDestroyed() ) return MoveResult.HIT;
+        return MoveResult.sunk(ship, shipSet.allShipsDestroyed());
+    }
+
+    /**
+     * Makes a move read from the log of a game, e.g. from a GameJournal. Players who have made a
+     * move always hand the turn to the other player, so afterwards it is the turn of the other
+     * player. The time of the player is set to the time spent on all moves so far.
+     * @param event The move, cf. MoveLog
+     * @throws IllegalArgumentException if the move is not legal or its result differs from the
+     * recorded one
+     */
+    void replayMove(long event) {
+        boolean player = MoveLog.getPlayer(event);
+        if (this.currentPlayer != player) {
+            switchPlayers();
+        }
+        MoveResult result = attack(this.gridUnderAttack().getCell(MoveLog.getCell(event)));
+        if (result.getType() != MoveLog.getResult(event)) {
+            throw new IllegalArgumentException("The move does not have the recorded result.");
+        }
+        this.moveLog.append(event);
+        getTimer(player).setTimeMillis(this.moveLog.getTime(player));
+        switchPlayers();
+    }
+
+    /**
+     * Takes back the last move. Afterwards it is the turn of the player who has made the move.
+     * The move can be redone as long as no other move has been made. If the AI has made the move,
+     * the AI is recreated, cf. getOpponentAI().
+     * @return False if there is no move to undo
+     */
+    public boolean undoMove() {
+        if (!this.moveLog.canUndo()) {
+            return false;
+        }
+        long event = this.moveLog.undo();
+        boolean player = MoveLog.getPlayer(event);
+        this.currentPlayer = player;
+        this.gridUnderAttack().getCell(MoveLog.getCell(event)).setHit(false);
+        if (player) {
+            this.attemptsPlayerTwo -= 1;
+        } else {
+            this.attemptsPlayerOne -= 1;
+        }
+        if (this.journal != null) {
+            this.journal.truncate(this.moveLog.size());
+        }
+        if (player) {
+            resetAI();
+        }
+        return true;
+    }
+
+    /**
+     * Makes the last move taken back again. Just like after makeMove, it is the turn of the player
+     * who has made the move. If the AI has made the move, the AI is recreated, cf. getOpponentAI().
+     * @return The result of the move or null if there is no move to redo
+     */
+    public MoveResult redoMove() {
+        if (!this.moveLog.canRedo()) {
+            return null;
+        }
+        long event = this.moveLog.peekRedo();
+        boolean player = MoveLog.getPlayer(event);
+        this.currentPlayer = player;
+        int cell = MoveLog.getCell(event);
+        MoveResult result = makeMove(player, cell % this.gridSize, cell / this.gridSize);
+        if (player) {
+            resetAI();
+        }
+        return result;
+    }
+
+    public MoveLog getMoveLog() {
+        return moveLog;
+    }
+
+    /**
+     * Lets the AI learn the moves made since it has been created, e.g. after moves have been
+     * replayed.
+     */
+    void resetAI() {
+        if (this.mode.isVsAI()) {
+            this.opponentAI = new GameAI(this.gridSize, this.mode, this);
+        }
+    }
+
+    /**
+     * Sets the journal every move is written to, cf. GameJournal.
+     * @param journal The journal or null to stop journaling
+     */
+    public void setJournal(GameJournal journal) {
+        this.journal = journal;
     }
 
     public void switchPlayers() {
@@ -179,21 +348,34 @@ public class GameController implements Parcelable {
 
     public boolean getCurrentPlayer(){ return this.currentPlayer;}
 
+    public GameRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Returns the seed of the game. Creating a game with this seed reproduces the random decisions
+     * of this game, except for the moves of the expert AI, cf. GameController(GameMode, int, int[], long).
+     * @return The seed of the game
+     */
+    public long getSeed() {
+        return this.random.getSeed();
+    }
+
     @Override
     public int describeContents() { return 0; }
 
+    /**
+     * Writes the game to the parcel as a compact snapshot, cf. GameSnapshot. Only the snapshot of
+     * the whole game is parcelled, not the grids, ships and cells it consists of.
+     */
     @Override
     public void writeToParcel(Parcel out, int flags) {
-        out.writeInt(this.gridSize);
-        out.writeString(this.mode.name());
-        out.writeBooleanArray( new boolean[] {this.currentPlayer} );
-        out.writeTypedArray( new GameGrid[] {this.gridFirstPlayer, this.gridSecondPlayer}, 0 );
-        out.writeTypedArray(new GameAI[] { this.opponentAI }, 0 );
+        out.writeByteArray(GameSnapshot.write(this));
     }
 
     public static final Parcelable.Creator<GameController> CREATOR = new Parcelable.Creator<GameController>() {
         public GameController createFromParcel(Parcel in) {
-            return new GameController(in);
+            return GameSnapshot.read(in.createByteArray());
         }
 
         public GameController[] newArray(int size) {
@@ -201,24 +383,6 @@ public class GameController implements Parcelable {
         }
     };
 
-    private GameController(Parcel in) {
-        this.gridSize = in.readInt();
-        this.mode = GameMode.valueOf( in.readString() );
-        this.currentPlayer = in.createBooleanArray()[0];
-        GameGrid[] grids = in.createTypedArray(GameGrid.CREATOR);
-        this.gridFirstPlayer = grids[0];
-        this.gridSecondPlayer = grids[1];
-
-        this.opponentAI = in.createTypedArray(GameAI.CREATOR)[0];
-        if(this.opponentAI != null) {
-            this.opponentAI.setController(this);
-        }
-        this.timePlayerOne = new BattleshipsTimer();
-        this.timePlayerTwo = new BattleshipsTimer();
-        this.attemptsPlayerOne = 0;
-        this.attemptsPlayerTwo = 0;
-    }
-
     public int getAttemptsPlayerOne(){
         return this.attemptsPlayerOne;
     }
@@ -236,6 +400,21 @@ public class GameController implements Parcelable {
         }
     }
 
+    BattleshipsTimer getTimer(boolean player) {
+        return player ? this.timePlayerTwo : this.timePlayerOne;
+    }
+
+    /**
+     * Restores the attempts and times of both players, e.g. when a game is restored. The times are
+     * given in milliseconds.
+     */
+    void restoreProgress(int attemptsPlayerOne, int attemptsPlayerTwo, int timePlayerOne, int timePlayerTwo) {
+        this.attemptsPlayerOne = attemptsPlayerOne;
+        this.attemptsPlayerTwo = attemptsPlayerTwo;
+        this.timePlayerOne.setTimeMillis(timePlayerOne);
+        this.timePlayerTwo.setTimeMillis(timePlayerTwo);
+    }
+
     public void startTimer(){
         if(getCurrentPlayer()){
             this.timePlayerTwo.start();
@@ -252,7 +431,7 @@ public class GameController implements Parcelable {
     }
 
     public int getTime(){
-        if(getMode() == GameMode.VS_AI_EASY || getMode() == GameMode.VS_AI_HARD){
+        if(getMode().isVsAI()){
             return this.timePlayerOne.getTime();
         }
         else{
@@ -19,9 +19,6 @@
 
 package org.secuso.privacyfriendlybattleship.game;
 
-import android.os.Parcel;
-import android.os.Parcelable;
-
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -34,7 +31,7 @@ import java.util.Random;
  * @author Alexander Müller, Ali Kalsen
  */
 
-public class GameGrid implements Parcelable{
+public class GameGrid {
 
     // GameGrids needed for the main activity and quick start
     private final static int SIZE_5x5 = 5;
@@ -49,20 +46,25 @@ public class GameGrid implements Parcelable{
         validSizes.add(SIZE_10x10);
     }
 
-    private GameCell[][] cellGrid;
     private int size;
     private GameShipSet shipSet;
+    private Random random;//Random number generator of the game
 
-    public GameGrid(int size, int[] shipCount) {
+    // Authoritative state of the grid. Bit (row * size + col) is set if the cell contains a ship
+    // or has been hit respectively.
+    private long[] shipMask;
+    private long[] hitMask;
+
+    // GameCells are only views on the masks above and are created on first access.
+    private GameCell[][] cellGrid;
+
+    public GameGrid(int size, int[] shipCount, Random random) {
         this.size = size;
+        this.random = random;
+        this.shipMask = BitBoard.create(size * size);
+        this.hitMask = BitBoard.create(size * size);
         this.cellGrid = new GameCell[this.size][this.size];
         this.shipSet = new GameShipSet(this, shipCount[0], shipCount[1], shipCount[2], shipCount[3]);
-
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                this.cellGrid[i][j] = new GameCell(i, j, this);
-            }
-        }
     }
 
     /**
@@ -75,64 +77,108 @@ public class GameGrid implements Parcelable{
         if(col >= size || row >= size || col < 0 || row < 0) {
             throw new IllegalArgumentException("Column or row exceeds the limits of the grid.");
         }
-        return cellGrid[col][row];
+        GameCell cell = cellGrid[col][row];
+        if (cell == null) {
+            cell = new GameCell(col, row, this);
+            cellGrid[col][row] = cell;
+        }
+        return cell;
     }
 
-    public GameShipSet getShipSet() {
-        return shipSet;
+    /**
+     * Returns the cell with the given index, cf. getCellIndex(int, int).
+     * @param index Index of the cell to be returned
+     * @return The cell with the given index
+     */
+    public GameCell getCell(int index) {
+        return getCell(index % this.size, index / this.size);
     }
 
-    public int getSize() {
-        return size;
+    /**
+     * Returns the index of the cell at the given column and row. Cells are enumerated from left to
+     * right and from top to bottom, just like in the grid views of the UI.
+     * @param col Column of the cell
+     * @param row Row of the cell
+     * @return The index of the cell
+     */
+    public int getCellIndex(int col, int row) {
+        return row * this.size + col;
     }
 
-    public static List<Integer> getValidSizes(){
-        return validSizes;
+    boolean isShip(int col, int row) {
+        return BitBoard.get(this.shipMask, getCellIndex(col, row));
     }
 
-    public GameCell getRandomCell() {
-        Random ranGen = new Random();
-        return this.getCell( ranGen.nextInt(this.size), ranGen.nextInt(this.size) );
+    boolean isHit(int col, int row) {
+        return BitBoard.get(this.hitMask, getCellIndex(col, row));
     }
 
-    @Override
-    public int describeContents() {
-        return 0;
+    void setShip(int col, int row, boolean ship) {
+        BitBoard.set(this.shipMask, getCellIndex(col, row), ship);
     }
 
-    @Override
-    public void writeToParcel(Parcel out, int flags) {
-        out.writeInt(this.size);
-        for (int i = 0; i < this.size; i++) {
-            out.writeTypedArray(this.cellGrid[i], 0);
+    void setHit(int col, int row, boolean hit) {
+        int index = getCellIndex(col, row);
+        if (BitBoard.get(this.hitMask, index) == hit) {
+            return;
+        }
+        BitBoard.set(this.hitMask, index, hit);
+        if (BitBoard.get(this.shipMask, index)) {
+            this.shipSet.onShipCellHit(getCell(col, row), hit);
         }
+    }
 
-        out.writeTypedArray(new GameShipSet[] {this.shipSet}, 0);
+    /**
+     * Returns true if every cell containing a ship has been hit.
+     * @return True if all ship cells are hit, false if not
+     */
+    public boolean allShipCellsHit() {
+        return BitBoard.isSubsetOf(this.shipMask, this.hitMask);
     }
 
-    public static final Parcelable.Creator<GameGrid> CREATOR = new Parcelable.Creator<GameGrid>() {
-        public GameGrid createFromParcel(Parcel in) {
-            return new GameGrid(in);
-        }
+    /**
+     * Returns the number of cells which have not been attacked yet.
+     * @return Number of cells not hit
+     */
+    public int getUnknownCellCount() {
+        return this.size * this.size - BitBoard.cardinality(this.hitMask);
+    }
 
-        public GameGrid[] newArray(int size) {
-            return new GameGrid[size];
-        }
-    };
+    /**
+     * Returns the bitboard of the cells containing a ship. The bitboard must not be modified.
+     */
+    long[] getShipMask() {
+        return shipMask;
+    }
 
-    private GameGrid(Parcel in) {
-        this.size = in.readInt();
-        this.cellGrid = new GameCell[this.size][this.size];
-        for (int i = 0; i < this.size; i++) {
-            this.cellGrid[i] = in.createTypedArray(GameCell.CREATOR);
-        }
-        for (int i = 0; i < this.size; i++) {
-            for (int j = 0; j < this.size; j++) {
-                this.cellGrid[i][j].setGrid(this);
-            }
-        }
+    /**
+     * Returns the bitboard of the cells which have been attacked. The bitboard must not be modified.
+     */
+    long[] getHitMask() {
+        return hitMask;
+    }
+
+    public int getShipCellCount() {
+        return BitBoard.cardinality(this.shipMask);
+    }
+
+    public GameShipSet getShipSet() {
+        return shipSet;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public static List<Integer> getValidSizes(){
+        return validSizes;
+    }
+
+    public GameCell getRandomCell() {
+        return this.getCell( this.random.nextInt(this.size), this.random.nextInt(this.size) );
+    }
 
-        this.shipSet = in.createTypedArray(GameShipSet.CREATOR)[0];
-        this.shipSet.recreateShipSet(this);
+    Random getRandom() {
+        return random;
     }
 }
@@ -0,0 +1,432 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * This class keeps the history of the finished games in the app-private storage. Each game is
+ * appended to the history file as a record of RECORD_BYTES bytes:
+ *
+ *   byte mode (ordinal of GameMode), byte grid size, 4 bytes ship count per ship size,
+ *   byte winner (0 for player one, 1 for player two), byte 0 (reserved),
+ *   short attempts of player one, short attempts of player two,
+ *   int time of player one in milliseconds, int time of player two in milliseconds.
+ *
+ * For each game mode, grid size and fleet the history maintains Statistics, which are updated with
+ * every recorded game and stored in a small summary file next to the history. Games with different
+ * fleets are not comparable, so they are never counted together. Queries like the best time on a
+ * 10x10 grid with the standard fleet against the hard AI are answered from the summary, the
+ * history file itself is only read to rebuild a summary which does not match the history, e.g.
+ * after the app has been killed between writing the two files. A record which has only been written
+ * in part is ignored and overwritten by the next game.
+ *
+ * The files are read on first access and written on the storage thread, cf. FileStorage. Recording
+ * a game hands the updated statistics of its mode, grid size and fleet to a callback, e.g. to show
+ * them in the dialog at the end of the game.
+ */
+
+public final class GameHistory {
+
+    private static final String FILE_NAME = "game_history";
+    private static final String SUMMARY_FILE_NAME = "game_history_summary";
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4;
+    private static final int RECORD_BYTES = 20;
+    private static final int RECORDS_PER_READ = 256;
+
+    public interface StatisticsCallback {
+        void onStatistics(Statistics statistics);
+    }
+
+    private static GameHistory history;//history of the directory last used
+
+    private final File directory;
+    private final Map<Long, Statistics> statistics = new HashMap<>();
+    private int games;//number of complete records in the history file
+
+    private GameHistory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Result of a finished game.
+     */
+    private static final class Record {
+
+        private final GameMode mode;
+        private final int gridSize;
+        private final int[] shipCount;
+        private final boolean winner;
+        private final int attemptsPlayerOne;
+        private final int attemptsPlayerTwo;
+        private final int timePlayerOne;
+        private final int timePlayerTwo;
+
+        private Record(GameMode mode, int gridSize, int[] shipCount, boolean winner,
+                       int attemptsPlayerOne, int attemptsPlayerTwo, int timePlayerOne, int timePlayerTwo) {
+            this.mode = mode;
+            this.gridSize = gridSize;
+            this.shipCount = shipCount;
+            this.winner = winner;
+            this.attemptsPlayerOne = attemptsPlayerOne;
+            this.attemptsPlayerTwo = attemptsPlayerTwo;
+            this.timePlayerOne = timePlayerOne;
+            this.timePlayerTwo = timePlayerTwo;
+        }
+
+        private void writeTo(ByteBuffer buffer) {
+            buffer.put((byte) this.mode.ordinal());
+            buffer.put((byte) this.gridSize);
+            for (int count : this.shipCount) {
+                buffer.put((byte) count);
+            }
+            buffer.put((byte) (this.winner ? 1 : 0));
+            buffer.put((byte) 0);
+            buffer.putShort((short) this.attemptsPlayerOne);
+            buffer.putShort((short) this.attemptsPlayerTwo);
+            buffer.putInt(this.timePlayerOne);
+            buffer.putInt(this.timePlayerTwo);
+        }
+
+        private static Record readFrom(ByteBuffer buffer) throws IOException {
+            int mode = buffer.get();
+            if (mode < 0 || mode >= GameMode.values().length) {
+                throw new IOException("The history contains an unknown game mode.");
+            }
+            int gridSize = buffer.get() & 0xFF;
+            int[] shipCount = new int[4];
+            for (int i = 0; i < shipCount.length; i++) {
+                shipCount[i] = buffer.get() & 0xFF;
+            }
+            boolean winner = buffer.get() != 0;
+            buffer.get();
+            int attemptsPlayerOne = buffer.getShort() & 0xFFFF;
+            int attemptsPlayerTwo = buffer.getShort() & 0xFFFF;
+            int timePlayerOne = buffer.getInt();
+            int timePlayerTwo = buffer.getInt();
+            return new Record(GameMode.values()[mode], gridSize, shipCount, winner,
+                    attemptsPlayerOne, attemptsPlayerTwo, timePlayerOne, timePlayerTwo);
+        }
+    }
+
+    /**
+     * Aggregates of all games played in a game mode on a grid size with a fleet.
+     */
+    public static final class Statistics {
+
+        private int games;
+        private int wins;//games won by player one
+        private long attempts;//attempts of player one in all games
+        private int bestTime = -1;//shortest time of player one in a game won by player one
+
+        private Statistics() {
+        }
+
+        private Statistics(Statistics other) {
+            this.games = other.games;
+            this.wins = other.wins;
+            this.attempts = other.attempts;
+            this.bestTime = other.bestTime;
+        }
+
+        private void add(Record record) {
+            this.games++;
+            this.attempts += record.attemptsPlayerOne;
+            if (!record.winner) {
+                this.wins++;
+                if (this.bestTime < 0 || record.timePlayerOne < this.bestTime) {
+                    this.bestTime = record.timePlayerOne;
+                }
+            }
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        /**
+         * Returns the number of games won by player one, i.e. by the player in the modes against
+         * the AI.
+         */
+        public int getWins() {
+            return wins;
+        }
+
+        public double getWinRate() {
+            return this.games == 0 ? 0 : this.wins / (double) this.games;
+        }
+
+        /**
+         * Returns the average number of attempts of player one per game.
+         */
+        public double getAverageAttempts() {
+            return this.games == 0 ? 0 : this.attempts / (double) this.games;
+        }
+
+        /**
+         * Returns the shortest time in milliseconds in which player one has won a game.
+         * @return The time or -1 if player one has not won yet
+         */
+        public int getBestTime() {
+            return bestTime;
+        }
+    }
+
+    /**
+     * Adds the given finished game to the history. The result is copied right away, the history
+     * is written in the background. Afterwards the statistics of the games played in the mode of
+     * the game on its grid size with its fleet, including the game, are handed to the callback.
+     * @param directory App-private directory, e.g. Context.getFilesDir()
+     * @param controller The game, after one of the players has won
+     * @param callbackExecutor Executor the callback is called on, e.g. the UI thread
+     * @param callback Callback receiving the statistics
+     */
+    public static void record(final File directory, GameController controller,
+                              final Executor callbackExecutor, final StatisticsCallback callback) {
+        final Record record = new Record(controller.getMode(), controller.getGridSize(),
+                controller.getShipCount().clone(),
+                controller.getGridFirstPlayer().getShipSet().allShipsDestroyed(),
+                controller.getAttemptsPlayerOne(), controller.getAttemptsPlayerTwo(),
+                (int) controller.getMoveLog().getTime(false), (int) controller.getMoveLog().getTime(true));
+        FileStorage.execute(new Runnable() {
+            @Override
+            public void run() {
+                forDirectory(directory).add(record);
+                final Statistics statistics = getStatistics(directory, record.mode, record.gridSize,
+                        record.shipCount);
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onStatistics(statistics);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns the statistics of all games played in the given mode on the given grid size with the
+     * given fleet. The history is loaded on first access, so this has to be called on the storage
+     * thread.
+     * @param directory App-private directory, e.g. Context.getFilesDir()
+     * @param shipCount Number of ships of size 2, 3, 4 and 5
+     * @return A copy of the statistics, which is empty if no such game has been played
+     */
+    static Statistics getStatistics(File directory, GameMode mode, int gridSize, int[] shipCount) {
+        GameHistory history = forDirectory(directory);
+        synchronized (history) {
+            Statistics statistics = history.statistics.get(getKey(mode, gridSize, shipCount));
+            return statistics == null ? new Statistics() : new Statistics(statistics);
+        }
+    }
+
+    private static synchronized GameHistory forDirectory(File directory) {
+        if (history == null || !history.directory.equals(directory)) {
+            history = new GameHistory(directory);
+            history.load();
+        }
+        return history;
+    }
+
+    private static long getKey(GameMode mode, int gridSize, int[] shipCount) {
+        long key = (mode.ordinal() << 8) | gridSize;
+        for (int count : shipCount) {
+            key = (key << 8) | (count & 0xFF);
+        }
+        return key;
+    }
+
+    private synchronized void add(Record record) {
+        File file = new File(this.directory, FILE_NAME);
+        RandomAccessFile out = null;
+        try {
+            out = new RandomAccessFile(file, "rw");
+            if (this.games == 0) {
+                out.setLength(0);
+                out.writeInt(VERSION);
+            }
+            // Overwrite a record which has only been written in part
+            long position = HEADER_BYTES + (long) this.games * RECORD_BYTES;
+            out.setLength(position);
+            out.seek(position);
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES);
+            record.writeTo(buffer);
+            out.write(buffer.array());
+        } catch (IOException e) {
+            // The game is not recorded, the history stays as it was.
+            return;
+        } finally {
+            FileStorage.close(out);
+        }
+        this.games++;
+        addToStatistics(record);
+        saveSummary();
+    }
+
+    private void addToStatistics(Record record) {
+        long key = getKey(record.mode, record.gridSize, record.shipCount);
+        Statistics statistics = this.statistics.get(key);
+        if (statistics == null) {
+            statistics = new Statistics();
+            this.statistics.put(key, statistics);
+        }
+        statistics.add(record);
+    }
+
+    /**
+     * Loads the summary. If it does not match the history, the statistics are computed from the
+     * history again.
+     */
+    private synchronized void load() {
+        File file = new File(this.directory, FILE_NAME);
+        int games = 0;
+        if (file.length() >= HEADER_BYTES) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new FileInputStream(file));
+                if (in.readInt() == VERSION) {
+                    games = (int) ((file.length() - HEADER_BYTES) / RECORD_BYTES);
+                }
+            } catch (IOException e) {
+                // Treated as an empty history
+            } finally {
+                FileStorage.close(in);
+            }
+        }
+        this.games = games;
+        if (loadSummary()) {
+            return;
+        }
+
+        this.statistics.clear();
+        List<Record> records = new ArrayList<>(RECORDS_PER_READ);
+        try {
+            for (int first = 0; first < this.games; first += RECORDS_PER_READ) {
+                records.clear();
+                read(first, Math.min(RECORDS_PER_READ, this.games - first), records);
+                for (Record record : records) {
+                    addToStatistics(record);
+                }
+            }
+        } catch (IOException e) {
+            // The history is damaged, later games are appended after the last readable one.
+            this.games = 0;
+            for (Statistics statistics : this.statistics.values()) {
+                this.games += statistics.games;
+            }
+        }
+        saveSummary();
+    }
+
+    /**
+     * Reads the given records of the history file and adds them to the list.
+     */
+    private void read(int first, int count, List<Record> records) throws IOException {
+        if (count == 0)
+            return;
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(new File(this.directory, FILE_NAME));
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(Math.min(count, RECORDS_PER_READ) * RECORD_BYTES);
+            long position = HEADER_BYTES + (long) first * RECORD_BYTES;
+            while (count > 0) {
+                buffer.clear();
+                buffer.limit(Math.min(count, RECORDS_PER_READ) * RECORD_BYTES);
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position + buffer.position());
+                    if (read < 0) {
+                        throw new IOException("The history is truncated.");
+                    }
+                }
+                position += buffer.position();
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    records.add(Record.readFrom(buffer));
+                    count--;
+                }
+            }
+        } finally {
+            FileStorage.close(in);
+        }
+    }
+
+    private boolean loadSummary() {
+        File file = new File(this.directory, SUMMARY_FILE_NAME);
+        if (!file.exists())
+            return this.games == 0;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != VERSION || in.readInt() != this.games)
+                return false;
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                long key = in.readLong();
+                Statistics statistics = new Statistics();
+                statistics.games = in.readInt();
+                statistics.wins = in.readInt();
+                statistics.attempts = in.readLong();
+                statistics.bestTime = in.readInt();
+                this.statistics.put(key, statistics);
+            }
+            return true;
+        } catch (IOException e) {
+            this.statistics.clear();
+            return false;
+        } finally {
+            FileStorage.close(in);
+        }
+    }
+
+    private void saveSummary() {
+        // If the summary cannot be written, it is computed from the history on the next start.
+        FileStorage.replace(new File(this.directory, SUMMARY_FILE_NAME), new FileStorage.Content() {
+            @Override
+            public void writeTo(DataOutputStream out) throws IOException {
+                out.writeInt(VERSION);
+                out.writeInt(games);
+                out.writeInt(statistics.size());
+                for (Map.Entry<Long, Statistics> entry : statistics.entrySet()) {
+                    Statistics statistics = entry.getValue();
+                    out.writeLong(entry.getKey());
+                    out.writeInt(statistics.games);
+                    out.writeInt(statistics.wins);
+                    out.writeLong(statistics.attempts);
+                    out.writeInt(statistics.bestTime);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,379 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * This class writes the moves of the running game to a journal in the app-private storage, such
+ * that the game can be resumed after the app has been closed or killed. The journal starts with a
+ * snapshot of the game before the first move, cf. GameSnapshot, followed by one record per move.
+ * A record is the event of the move in the MoveLog of the game, a long.
+ *
+ * Records have a fixed width and are appended, only undoing a move removes the last record. The
+ * records are collected in memory and written in batches on the storage thread, cf. FileStorage,
+ * so the UI thread does not wait for the disk. Creating and opening the journal is the first task of
+ * the journal on the storage thread, and resuming a game runs there as well. A batch is written as soon as the storage thread is
+ * idle, so a killed process loses at most the last few moves. A record which has only been written
+ * in part is ignored when the journal is read.
+ * Resuming a game restores the snapshot and replays the moves, which is much cheaper than storing
+ * the whole game after every move.
+ *
+ * There is only one journal, the one of the last game started. It is deleted once the game has
+ * been finished.
+ */
+
+public final class GameJournal implements Closeable {
+
+    public interface ResumeCallback {
+        void onResumed(GameController controller);
+    }
+
+    private static final String FILE_NAME = "game_journal";
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * 4;
+    private static final int RECORD_BYTES = 8;
+
+    private final File file;
+    private FileChannel channel;//only used on the storage thread, like the following fields
+    private long movesStart;//position of the first record
+    private ByteBuffer batch = ByteBuffer.allocate(16 * RECORD_BYTES);//only used on the storage thread
+    private volatile boolean failed;
+
+    // Guarded by this. The moves 0..writtenMoves - 1 have been handed to the storage thread, the
+    // following moves are pending. If truncateTo is not -1, the records from this move on are
+    // removed before the next batch is written.
+    private long[] pending = new long[16];
+    private int pendingCount;
+    private int writtenMoves;
+    private int truncateTo = -1;
+    private boolean writeScheduled;
+
+    private final Runnable writeTask = new Runnable() {
+        @Override
+        public void run() {
+            writeBatch();
+        }
+    };
+
+    private GameJournal(File directory, int moves) {
+        this.file = new File(directory, FILE_NAME);
+        this.writtenMoves = moves;
+    }
+
+    /**
+     * Starts the journal of a new game, replacing the journal of the previous game. The journal is
+     * written in the background, after the tasks already queued on the storage thread. If it cannot
+     * be written, the game goes on without the journal.
+     * @param directory App-private directory, e.g. Context.getFilesDir()
+     * @param controller The game, before the first move has been made
+     * @return The journal, which has to be passed to GameController.setJournal
+     */
+    public static GameJournal create(File directory, GameController controller) {
+        final byte[] snapshot = GameSnapshot.write(controller);
+        final GameJournal journal = new GameJournal(directory, 0);
+        FileStorage.execute(new Runnable() {
+            @Override
+            public void run() {
+                journal.writeHeader(snapshot);
+            }
+        });
+        return journal;
+    }
+
+    /**
+     * Opens the journal of the last game in order to append further moves, e.g. after the game
+     * has been resumed. The journal is opened in the background and the records following the moves
+     * of the game are dropped, e.g. a record which has only been written in part. If there is no
+     * journal of the game, the game goes on without the journal.
+     * @param directory App-private directory, e.g. Context.getFilesDir()
+     * @param controller The game of the journal
+     * @return The journal, which has to be passed to GameController.setJournal
+     */
+    public static GameJournal open(File directory, GameController controller) {
+        final int moves = controller.getMoveLog().size();
+        final GameJournal journal = new GameJournal(directory, moves);
+        FileStorage.execute(new Runnable() {
+            @Override
+            public void run() {
+                journal.openChannel(moves);
+            }
+        });
+        return journal;
+    }
+
+    /**
+     * Writes the header of a new journal, runs on the storage thread.
+     */
+    private void writeHeader(byte[] snapshot) {
+        try {
+            this.channel = new RandomAccessFile(this.file, "rw").getChannel();
+            this.channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + snapshot.length);
+            header.putInt(VERSION);
+            header.putInt(snapshot.length);
+            header.put(snapshot);
+            header.flip();
+            while (header.hasRemaining()) {
+                this.channel.write(header);
+            }
+            this.movesStart = HEADER_BYTES + snapshot.length;
+        } catch (IOException e) {
+            this.failed = true;
+        }
+    }
+
+    /**
+     * Opens the journal of a game with the given number of moves, runs on the storage thread.
+     */
+    private void openChannel(int moves) {
+        if (!this.file.exists()) {
+            this.failed = true;
+            return;
+        }
+        try {
+            this.channel = new RandomAccessFile(this.file, "rw").getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(this.channel, header, 0);
+            if (header.getInt(0) != VERSION) {
+                throw new IOException("The journal has an unknown version.");
+            }
+            this.movesStart = HEADER_BYTES + header.getInt(4);
+            long end = this.movesStart + (long) moves * RECORD_BYTES;
+            if (this.channel.size() < end) {
+                throw new IOException("The journal lacks moves of the game.");
+            }
+            this.channel.truncate(end);
+        } catch (IOException e) {
+            this.failed = true;
+        }
+    }
+
+    /**
+     * Returns true if there is a game which can be resumed. This only checks whether the journal
+     * exists.
+     * @param directory App-private directory, e.g. Context.getFilesDir()
+     */
+    public static boolean exists(File directory) {
+        return new File(directory, FILE_NAME).exists();
+    }
+
+    /**
+     * Deletes the journal in the background, e.g. once the game has been finished.
+     * @param directory App-private directory, e.g. Context.getFilesDir()
+     */
+    public static void delete(final File directory) {
+        FileStorage.execute(new Runnable() {
+            @Override
+            public void run() {
+                new File(directory, FILE_NAME).delete();
+            }
+        });
+    }
+
+    /**
+     * Restores the game of the journal in the background and hands it to the callback on the
+     * callback executor, e.g. the UI thread. A damaged journal is deleted.
+     * @param directory App-private directory, e.g. Context.getFilesDir()
+     * @param callbackExecutor Executor the callback is called on
+     * @param callback Callback receiving the game or null if there is no journal or it is damaged
+     */
+    public static void resume(final File directory, final Executor callbackExecutor,
+                              final ResumeCallback callback) {
+        FileStorage.execute(new Runnable() {
+            @Override
+            public void run() {
+                final GameController controller = resume(directory);
+                if (controller == null) {
+                    new File(directory, FILE_NAME).delete();
+                }
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onResumed(controller);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Restores the game of the journal. It is the turn of the player who did not make the last
+     * move. Attempts and times are restored as well. Has to be called on the storage thread.
+     * @param directory App-private directory, e.g. Context.getFilesDir()
+     * @return The game or null if there is no journal or it is damaged
+     */
+    static GameController resume(File directory) {
+        File file = new File(directory, FILE_NAME);
+        if (!file.exists())
+            return null;
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            FileChannel channel = in.getChannel();
+            ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+            readFully(channel, data, 0);
+            data.flip();
+
+            if (data.getInt() != VERSION)
+                return null;
+            byte[] snapshot = new byte[data.getInt()];
+            data.get(snapshot);
+            GameController controller = GameSnapshot.read(snapshot);
+            while (data.remaining() >= RECORD_BYTES) {
+                controller.replayMove(data.getLong());
+            }
+            controller.resetAI();
+            return controller;
+        } catch (IOException | RuntimeException e) {
+            // A damaged journal cannot be resumed, e.g. a move which is not legal in the game.
+            return null;
+        } finally {
+            FileStorage.close(in);
+        }
+    }
+
+    /**
+     * Appends a move to the journal. The move is written in the background. If the journal cannot
+     * be written, the game goes on without the journal.
+     * @param event The move, cf. MoveLog
+     */
+    synchronized void append(long event) {
+        if (this.failed)
+            return;
+        if (this.pendingCount == this.pending.length) {
+            this.pending = Arrays.copyOf(this.pending, 2 * this.pending.length);
+        }
+        this.pending[this.pendingCount++] = event;
+        scheduleWrite();
+    }
+
+    /**
+     * Removes the records of undone moves.
+     * @param moves Number of moves which have not been undone
+     */
+    synchronized void truncate(int moves) {
+        if (this.failed)
+            return;
+        if (moves >= this.writtenMoves) {
+            this.pendingCount = Math.min(this.pendingCount, moves - this.writtenMoves);
+            return;
+        }
+        this.pendingCount = 0;
+        this.writtenMoves = moves;
+        this.truncateTo = moves;
+        scheduleWrite();
+    }
+
+    private void scheduleWrite() {
+        if (!this.writeScheduled) {
+            this.writeScheduled = true;
+            FileStorage.execute(this.writeTask);
+        }
+    }
+
+    /**
+     * Writes the pending moves, runs on the storage thread.
+     */
+    private void writeBatch() {
+        if (this.failed)
+            return;
+        int truncateTo;
+        int first;
+        synchronized (this) {
+            this.writeScheduled = false;
+            truncateTo = this.truncateTo;
+            this.truncateTo = -1;
+            first = this.writtenMoves;
+            if (this.batch.capacity() < this.pendingCount * RECORD_BYTES) {
+                this.batch = ByteBuffer.allocate(this.pending.length * RECORD_BYTES);
+            }
+            this.batch.clear();
+            for (int i = 0; i < this.pendingCount; i++) {
+                this.batch.putLong(this.pending[i]);
+            }
+            this.writtenMoves += this.pendingCount;
+            this.pendingCount = 0;
+        }
+        this.batch.flip();
+        try {
+            if (truncateTo >= 0) {
+                this.channel.truncate(this.movesStart + (long) truncateTo * RECORD_BYTES);
+            }
+            long position = this.movesStart + (long) first * RECORD_BYTES;
+            while (this.batch.hasRemaining()) {
+                position += this.channel.write(this.batch, position);
+            }
+        } catch (IOException e) {
+            this.failed = true;
+        }
+    }
+
+    /**
+     * Writes the pending moves and forces them to the storage device in the background, e.g. when
+     * the app is paused. Until then they are only safe from the app being killed, not from the device
+     * losing power.
+     */
+    public void sync() {
+        FileStorage.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (failed)
+                    return;
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    // The journal has been closed in the meantime or the next sync will succeed.
+                }
+            }
+        });
+    }
+
+    /**
+     * Closes the journal once the pending moves have been written.
+     */
+    @Override
+    public void close() {
+        FileStorage.execute(new Runnable() {
+            @Override
+            public void run() {
+                FileStorage.close(channel);
+            }
+        });
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("The journal is truncated.");
+            }
+            position += read;
+        }
+    }
+}
@@ -31,16 +31,18 @@ import java.util.List;
 /**
  * This file represents the mode for a battleships game. It is used to
  * define whether the game is played in the two player mode or against the
- * AI in one of two difficulty levels.
+ * AI in one of three difficulty levels.
  *
  * @author Alexander Müller, Ali Kalsen
  */
 
 public enum GameMode {
+    // The ordinals are stored by GameSnapshot and GameHistory, so new modes have to be appended.
     VS_PLAYER(R.string.mode_two_player, R.drawable.ic_people_black_24px),
     VS_AI_EASY(R.string.mode_vs_cpu_easy, R.drawable.ic_cpu_easy),
     VS_AI_HARD(R.string.mode_vs_cpu_hard, R.drawable.ic_cpu_hard),
-    CUSTOM(R.string.mode_custom, R.drawable.ic_people_black_24px);
+    CUSTOM(R.string.mode_custom, R.drawable.ic_people_black_24px),
+    VS_AI_EXPERT(R.string.mode_vs_cpu_expert, R.drawable.ic_cpu_hard);
 
     private final int resIDString;
     private final int resIDImage;
@@ -51,6 +53,7 @@ public enum GameMode {
         validTypes.add(VS_PLAYER);
         validTypes.add(VS_AI_EASY);
         validTypes.add(VS_AI_HARD);
+        validTypes.add(VS_AI_EXPERT);
     }
 
 
@@ -67,6 +70,32 @@ public enum GameMode {
         return resIDImage;
     }
 
+    /**
+     * Returns true if the game is played against the AI.
+     * @return True for all AI difficulty levels
+     */
+    public boolean isVsAI() {
+        return this == VS_AI_EASY || this == VS_AI_HARD || this == VS_AI_EXPERT;
+    }
+
+    /**
+     * Creates the strategy choosing the moves of the AI in this mode.
+     * @return A new strategy
+     * @throws IllegalStateException if the game is not played against the AI
+     */
+    public AIStrategy createAIStrategy() {
+        switch (this) {
+            case VS_AI_EASY:
+                return new RandomStrategy();
+            case VS_AI_HARD:
+                return new HuntTargetStrategy();
+            case VS_AI_EXPERT:
+                return new EndgameStrategy(new OpeningStrategy(new MonteCarloStrategy()));
+            default:
+                throw new IllegalStateException("No AI in game mode " + this);
+        }
+    }
+
     public static List<GameMode> getValidTypes(){
         return validTypes;
     }
@@ -0,0 +1,86 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Random;
+
+/**
+ * This class is the random number generator of a game. It is owned by the GameController and used
+ * for ship placement, such that a game can be replayed from its seed. The AI uses a generator of
+ * its own, which is derived from the same seed, cf. GameAI. The moves of the expert AI cannot be
+ * replayed though, as it samples fleets for a fixed time rather than a fixed number of fleets, cf.
+ * MonteCarloSampler. Unlike java.util.Random its state can be read and restored, which allows to
+ * save it with the game.
+ * The numbers are generated with the SplitMix64 algorithm.
+ */
+
+public class GameRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private long seed;
+    private long state;
+
+    public GameRandom() {
+        this(new Random().nextLong());
+    }
+
+    public GameRandom(long seed) {
+        super(seed);
+        this.seed = seed;
+        this.state = seed;
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        // Also called by the constructor of java.util.Random
+        this.seed = seed;
+        this.state = seed;
+    }
+
+    @Override
+    protected int next(int bits) {
+        long z;
+        synchronized (this) {
+            this.state += 0x9E3779B97F4A7C15L;
+            z = this.state;
+        }
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int) (z >>> (64 - bits));
+    }
+
+    /**
+     * Returns the seed the generator has been initialized with.
+     * @return The seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    synchronized long getState() {
+        return state;
+    }
+
+    synchronized void setState(long state) {
+        this.state = state;
+    }
+}
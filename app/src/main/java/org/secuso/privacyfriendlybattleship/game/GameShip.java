@@ -19,9 +19,6 @@
 
 package org.secuso.privacyfriendlybattleship.game;
 
-import android.os.Parcel;
-import android.os.Parcelable;
-
 /**
  * This class represents a ship of the battleships game. Each ship
  * consists of two or more cells and can be moved using the methods
@@ -30,21 +27,24 @@ import android.os.Parcelable;
  * @author Alexander Müller, Ali Kalsen
  */
 
-public class GameShip implements Parcelable{
+public class GameShip {
     private int size;
     private GameCell[] shipsCells;
     private Direction orientation;
     private GameGrid grid;
     private GameShipSet shipSet;
+    private int id;//Index of the ship within its ship set
+    private int hitCount;//Number of cells of the ship which have been hit
 
     private int startCellCol;
     private int startCellRow;
 
-    public GameShip(GameGrid grid,
-                    GameShipSet shipSet,
-                    GameCell shipStart,
-                    int shipSize,
-                    Direction shipOrientation) {
+    GameShip(GameGrid grid,
+             GameShipSet shipSet,
+             int id,
+             GameCell shipStart,
+             int shipSize,
+             Direction shipOrientation) {
         if ( !argumentsValid(shipStart, shipSize, shipOrientation, grid.getSize())) {
             throw new IllegalArgumentException("The ship exceeds the limits of the game field");
         }
@@ -53,6 +53,7 @@ public class GameShip implements Parcelable{
         this.orientation = shipOrientation;
         this.grid = grid;
         this.shipSet = shipSet;
+        this.id = id;
         this.startCellCol = shipStart.getCol();
         this.startCellRow = shipStart.getRow();
 
@@ -71,8 +72,15 @@ public class GameShip implements Parcelable{
         return true;
     }
 
+    /**
+     * Fills shipsCells with the cells of the ship and adds them to the index of the ship set. The
+     * array is reused whenever the ship is moved or turned, so callers of getShipsCells() have to
+     * copy the cells if they need the previous position of the ship.
+     */
     private void initializeShipsCells() {
-        this.shipsCells = new GameCell[this.size];
+        if (this.shipsCells == null) {
+            this.shipsCells = new GameCell[this.size];
+        }
 
         if (this.orientation == Direction.NORTH) {
             for (int i = 0; i < this.size; i++) {
@@ -92,15 +100,17 @@ public class GameShip implements Parcelable{
             }
         }
 
-        for (int i = 0; i < this.shipsCells.length; i++) {
-            this.shipsCells[i].setShip(true);
-        }
+        this.shipSet.addToIndex(this);
     }
 
     public int getSize() {
         return size;
     }
 
+    int getId() {
+        return id;
+    }
+
     public Direction getOrientation() {
         return orientation;
     }
@@ -118,12 +128,15 @@ public class GameShip implements Parcelable{
     }
 
     public boolean isDestroyed() {
-        for (int i = 0; i < shipsCells.length; i++) {
-            if ( !shipsCells[i].isHit() ) {
-                return false;
-            }
-        }
-        return true;
+        return this.hitCount == this.size;
+    }
+
+    int getHitCount() {
+        return hitCount;
+    }
+
+    void setHitCount(int hitCount) {
+        this.hitCount = hitCount;
     }
 
     public boolean containsCell(GameCell cell) {
@@ -133,31 +146,12 @@ public class GameShip implements Parcelable{
         return false;
     }
 
-    /**
-     * Returns true if the ships have at least one cell in between, false if they are adjacent or
-     * overlapping. Diagonal cells are considered adjacent.
-     * @param other ship to compare to
-     * @return true if the given ship is not in contact
-     */
-    public boolean keepsDistanceTo(GameShip other) {
-        for (int i = 0; i < this.size; i++) {
-            GameCell[] otherCells = other.getShipsCells();
-            for (int j = 0; j < other.getSize(); j++) {
-                if ( this.shipsCells[i].isNextTo(otherCells[j]) )
-                    return false;
-            }
-        }
-        return true;
-    }
-
     /**
      * Marks all cells of the ship as water except the ones with a ship-collision. Call this method
      * before deleting the Object.
      */
     public void close() {
-        for(GameCell cell : this.shipsCells){
-            if ( this.shipSet.shipsOnCell(cell) == 1) cell.setShip(false);
-        }
+        this.shipSet.removeFromIndex(this);
     }
 
     public void moveShip(Direction direction) {
@@ -301,42 +295,4 @@ public class GameShip implements Parcelable{
         this.startCellRow = newStartRow;
         this.initializeShipsCells();
     }
-
-    @Override
-    public int describeContents() {
-        return 0;
-    }
-
-    @Override
-    public void writeToParcel(Parcel out, int flags) {
-        out.writeInt(this.size);
-        out.writeString(this.orientation.name());
-        out.writeInt(this.shipsCells[0].getCol());
-        out.writeInt(this.shipsCells[0].getRow());
-    }
-
-    public static final Parcelable.Creator<GameShip> CREATOR = new Parcelable.Creator<GameShip>() {
-        public GameShip createFromParcel(Parcel in) {
-            return new GameShip(in);
-        }
-
-        public GameShip[] newArray(int size) {
-            return new GameShip[size];
-        }
-    };
-
-    private GameShip(Parcel in) {
-        this.size = in.readInt();
-        this.orientation = Direction.valueOf(in.readString());
-        this.startCellCol = in.readInt();
-        this.startCellRow = in.readInt();
-        //recreateShip has to be called for the ship to be fully recovered.
-    }
-
-    void recreateShip(GameGrid grid, GameShipSet set) {
-        this.grid = grid;
-        this.shipSet = set;
-
-        initializeShipsCells();
-    }
 }
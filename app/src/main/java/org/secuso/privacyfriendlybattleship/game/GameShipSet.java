@@ -19,8 +19,9 @@
 
 package org.secuso.privacyfriendlybattleship.game;
 
-import android.os.Parcel;
-import android.os.Parcelable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 /**
  * This class represents the set of ships of a player for the battleships
@@ -30,15 +31,30 @@ import android.os.Parcelable;
  * @author Alexander Müller, Ali Kalsen
  */
 
-public class GameShipSet implements Parcelable{
+public class GameShipSet {
+
+    // Set to true to forbid ships touching each other, not even diagonally.
+    public static final boolean KEEP_DISTANCE = false;
+
     private GameShip[][] ships;
     private GameShip[] size2Ships;
     private GameShip[] size3Ships;
     private GameShip[] size4Ships;
     private GameShip[] size5Ships;
     private int totalShipCount;
+    private int placedShipCount;
+    private int destroyedShipCount;
     private GameGrid grid;
 
+    /*
+    Index of the ships on each cell of the grid. For every cell it stores the number of ships
+    covering it and the xor of (id + 1) of these ships. If exactly one ship covers a cell, the xor
+    is the id of that ship plus one, which makes lookup and overlap counting constant-time.
+     */
+    private GameShip[] shipsById;
+    private int[] shipCountOnCell;
+    private int[] shipIdsOnCell;
+
     /*
     public GameShipSet(GameGrid grid){
         this.grid = grid;
@@ -59,6 +75,87 @@ public class GameShipSet implements Parcelable{
         this.size5Ships = new GameShip[shipsSize5];
         this.ships = new GameShip[][] {this.size2Ships, this.size3Ships, this.size4Ships, this.size5Ships};
         this.totalShipCount = shipsSize2 + shipsSize3 + shipsSize4 + shipsSize5;
+        initializeIndex();
+    }
+
+    private void initializeIndex() {
+        int cellCount = this.grid.getSize() * this.grid.getSize();
+        this.shipsById = new GameShip[this.totalShipCount];
+        this.shipCountOnCell = new int[cellCount];
+        this.shipIdsOnCell = new int[cellCount];
+    }
+
+    /**
+     * Returns the id of the ship in the given slot. Ids enumerate the ships ordered by size.
+     * @param sizeIndex Size of the ship minus 2
+     * @param shipIndex Index of the ship among the ships of the same size
+     * @return Id of the ship
+     */
+    private int getShipId(int sizeIndex, int shipIndex) {
+        int id = shipIndex;
+        for (int i = 0; i < sizeIndex; i++) {
+            id += this.ships[i].length;
+        }
+        return id;
+    }
+
+    /**
+     * Adds the cells of the ship to the index and marks them as ship cells on the grid. Called by
+     * the ship whenever it has been (re)positioned.
+     * @param ship The ship to be added
+     */
+    void addToIndex(GameShip ship) {
+        if (this.shipsById[ship.getId()] == null) this.placedShipCount++;
+        this.shipsById[ship.getId()] = ship;
+        int hitCount = 0;
+        for (GameCell cell : ship.getShipsCells()) {
+            int index = cell.getIndex();
+            if (this.shipCountOnCell[index]++ == 0) cell.setShip(true);
+            this.shipIdsOnCell[index] ^= ship.getId() + 1;
+            if (cell.isHit()) hitCount++;
+        }
+        ship.setHitCount(hitCount);
+        if (ship.isDestroyed()) this.destroyedShipCount++;
+    }
+
+    /**
+     * Removes the cells of the ship from the index. Cells not covered by another ship are marked
+     * as water.
+     * @param ship The ship to be removed
+     */
+    void removeFromIndex(GameShip ship) {
+        if (ship.isDestroyed()) this.destroyedShipCount--;
+        ship.setHitCount(0);
+        for (GameCell cell : ship.getShipsCells()) {
+            int index = cell.getIndex();
+            if (--this.shipCountOnCell[index] == 0) cell.setShip(false);
+            this.shipIdsOnCell[index] ^= ship.getId() + 1;
+        }
+    }
+
+    /**
+     * Updates the hit counters of the ships on the given cell. Called by the grid whenever the hit
+     * state of a ship cell changes.
+     * @param cell The cell whose hit state has changed
+     * @param hit The new hit state of the cell
+     */
+    void onShipCellHit(GameCell cell, boolean hit) {
+        int index = cell.getIndex();
+        if (this.shipCountOnCell[index] == 1) {
+            updateHitCount(this.shipsById[this.shipIdsOnCell[index] - 1], hit);
+            return;
+        }
+        for (GameShip ship : this.shipsById) {
+            if (ship != null && ship.containsCell(cell)) updateHitCount(ship, hit);
+        }
+    }
+
+    private void updateHitCount(GameShip ship, boolean hit) {
+        boolean wasDestroyed = ship.isDestroyed();
+        ship.setHitCount(ship.getHitCount() + (hit ? 1 : -1));
+        if (ship.isDestroyed() != wasDestroyed) {
+            this.destroyedShipCount += wasDestroyed ? -1 : 1;
+        }
     }
 
     public int getTotalShipCount() {
@@ -67,16 +164,19 @@ public class GameShipSet implements Parcelable{
 
     /**
      * Returns true if all ships of this set are destroyed and therefore the corresponding player has lost.
+     * Ships which have not been placed yet are not taken into account.
      * @return True if all ships are destroyed, false if not
      */
     public boolean allShipsDestroyed() {
-        for (GameShip[] shipsSizeN : this.ships) {
-            for (GameShip ship : shipsSizeN) {
-                if ( ship == null ) continue;
-                if ( !ship.isDestroyed() ) return false;
-            }
-        }
-        return true;
+        return this.destroyedShipCount == this.placedShipCount;
+    }
+
+    /**
+     * Returns the number of placed ships which have not been destroyed yet.
+     * @return Number of remaining ships
+     */
+    public int getRemainingShipCount() {
+        return this.placedShipCount - this.destroyedShipCount;
     }
 
     /**
@@ -97,37 +197,79 @@ public class GameShipSet implements Parcelable{
         if (shipIndex == this.ships[size - 2].length)
             throw new IllegalArgumentException("All ships of this size already placed.");
 
-        this.ships[size - 2][shipIndex] = new GameShip(this.grid, this, this.grid.getCell(startCol, startRow), size, direction);
+        this.ships[size - 2][shipIndex] = new GameShip(this.grid, this, getShipId(size - 2, shipIndex),
+                this.grid.getCell(startCol, startRow), size, direction);
     }
 
     /**
      * Places all ships randomly on the grid. The resulting placement will be legit according to the
-     * rules of the game. Ships that have already been placed will be overwritten. This method may
-     * not terminate if the amount of ships is chosen to be higher than with normal game rules.
+     * rules of the game. Ships that have already been placed will be overwritten.
+     * @throws IllegalStateException if the ships do not fit on the grid
      */
     public void placeShipsRandomly() {
+        // Remove the ships placed so far and collect the sizes of all ships, largest ships first
+        int[] shipSizes = new int[this.totalShipCount];
+        int shipIndex = 0;
         for (int i = this.ships.length - 1; i >= 0; i--) {
             for (int j = 0; j < this.ships[i].length; j++) {
                 if (this.ships[i][j] != null) {
                     this.ships[i][j].close();
+                    this.ships[i][j] = null;
                 }
-                this.ships[i][j] = this.getRandomShip(i + 2);
-                while ( !this.placementLegit() ) {
-                    this.ships[i][j].close();
-                    this.ships[i][j] = this.getRandomShip(i + 2);
-                }
+                shipSizes[shipIndex++] = i + 2;
+            }
+        }
+
+        Random random = this.grid.getRandom();
+        int[] placements = new FleetPlacer(this.grid.getSize(), shipSizes, KEEP_DISTANCE, random).place();
+
+        shipIndex = 0;
+        for (int i = this.ships.length - 1; i >= 0; i--) {
+            for (int j = 0; j < this.ships[i].length; j++) {
+                this.ships[i][j] = createShip(i + 2, getShipId(i, j), placements[shipIndex++], random);
             }
         }
     }
 
-    private GameShip getRandomShip(int size) {GameCell cell;
+    /**
+     * Creates a ship for a placement computed by the FleetPlacer. The direction the ship is facing
+     * is chosen randomly among the two directions along its axis.
+     */
+    private GameShip createShip(int size, int id, int placement, Random random) {
+        boolean reversed = random.nextBoolean();
         Direction orientation;
-        do {
-            cell = grid.getRandomCell();
-            orientation = Direction.getRandomDirection();
-        } while ( !GameShip.argumentsValid(cell, size, orientation, grid.getSize() ) );
+        if (FleetPlacer.getAxis(placement) == FleetPlacer.VERTICAL) {
+            orientation = reversed ? Direction.SOUTH : Direction.NORTH;
+        } else {
+            orientation = reversed ? Direction.EAST : Direction.WEST;
+        }
+        PlacementTable table = PlacementTable.get(this.grid.getSize(), size, orientation);
+        GameCell start = this.grid.getCell(table.getStartCell(FleetPlacer.getTableIndex(placement)));
+        return new GameShip(this.grid, this, id, start, size, orientation);
+    }
+
+    /**
+     * Places a ship in the given slot, e.g. when a game is restored from a snapshot.
+     * @param sizeIndex Size of the ship minus 2
+     * @param shipIndex Index of the ship among the ships of the same size
+     * @param startCell Index of the cell the ship starts with
+     * @param orientation The direction the ship is facing
+     */
+    void restoreShip(int sizeIndex, int shipIndex, int startCell, Direction orientation) {
+        if (this.ships[sizeIndex][shipIndex] != null)
+            throw new IllegalArgumentException("The ship has already been placed.");
+        this.ships[sizeIndex][shipIndex] = new GameShip(this.grid, this, getShipId(sizeIndex, shipIndex),
+                this.grid.getCell(startCell), sizeIndex + 2, orientation);
+    }
 
-        return new GameShip( grid, this, cell, size, orientation );
+    /**
+     * Returns the ship in the given slot.
+     * @param sizeIndex Size of the ship minus 2
+     * @param shipIndex Index of the ship among the ships of the same size
+     * @return The ship or null if it has not been placed yet
+     */
+    GameShip getShip(int sizeIndex, int shipIndex) {
+        return this.ships[sizeIndex][shipIndex];
     }
 
     public boolean allShipsPlaced() {
@@ -144,97 +286,80 @@ public class GameShipSet implements Parcelable{
      * @return True if ship-placement is legit, false if not
      */
     public boolean placementLegit() {
-        for (int i = 0; i < this.ships.length; i++) {
-            for (int j = 0; j < this.ships[i].length; j++) {
-                if (this.ships[i][j] == null)
-                    continue;
-
-                for (GameCell cell : this.ships[i][j].getShipsCells() ){
-                    if ( this.shipsOnCell(cell) > 1 ) return false;
-                }
-            }
-        }
-
-        /* //implementation for ship-distance of at least one cell
-        for (int i = 0; i < this.ships.length; i++) {
-            for (int j = 0; j < this.ships[i].length; j++) {
-                if (this.ships[i][j] == null)
-                    continue;
-
-                for (int k = 0; k < this.ships.length; k++) {
-                    for (int l = 0; l < this.ships[k].length; l++) {
-                        if ( this.ships[k][l] == null || this.ships[k][l].equals(this.ships[i][j]) )
-                            continue;
+        return collectPlacementConflicts(KEEP_DISTANCE, null) == 0;
+    }
 
-                        if ( !this.ships[i][j].keepsDistanceTo(this.ships[k][l]) )
-                            return false;
-                    }
-                }
-            }
-        }
-        */
-        return true;
+    /**
+     * Returns the cells which violate the placement rules. These are the cells covered by more than
+     * one ship and, if ships have to keep a distance, the cells next to a cell of another ship.
+     * Cells diagonal to each other are considered adjacent.
+     * @param keepDistance True if ships must not touch each other
+     * @return The conflicting cells, an empty list if the placement is legit
+     */
+    public List<GameCell> findPlacementConflicts(boolean keepDistance) {
+        List<GameCell> conflicts = new ArrayList<>();
+        collectPlacementConflicts(keepDistance, conflicts);
+        return conflicts;
     }
 
     /**
-     * Returns the number of ships on the given cell.
-     * @param cell The cell to count ships on
-     * @return Amount if ships ob the given cell
+     * Checks the placement in a single pass over the cells of all ships, using the ship index.
+     * @param keepDistance True if ships must not touch each other
+     * @param conflicts List to add the conflicting cells to. If null, the check stops at the first
+     *                  conflict.
+     * @return The number of conflicting cells found
      */
-    public int shipsOnCell(GameCell cell) {
+    private int collectPlacementConflicts(boolean keepDistance, List<GameCell> conflicts) {
+        int gridSize = this.grid.getSize();
+        long[] reported = BitBoard.create(gridSize * gridSize);
         int count = 0;
+
         for (GameShip[] shipsSizeN : this.ships) {
             for (GameShip ship : shipsSizeN) {
-                if ( ship == null )
+                if (ship == null)
                     continue;
-                if ( ship.containsCell(cell) )
-                    count++;
-            }
-        }
-        return count;
-    }
 
-    @Override
-    public int describeContents() {
-        return 0;
-    }
+                for (GameCell cell : ship.getShipsCells()) {
+                    int index = cell.getIndex();
+                    if (BitBoard.get(reported, index))
+                        continue;
 
-    @Override
-    public void writeToParcel(Parcel out, int flags) {
-        for (int i = 0; i < this.ships.length; i++) {
-            out.writeTypedArray(this.ships[i], 0);
+                    boolean conflict = this.shipCountOnCell[index] > 1;
+                    if (!conflict && keepDistance) {
+                        conflict = touchesOtherShip(cell, ship.getId());
+                    }
+                    if (conflict) {
+                        if (conflicts == null) return 1;
+                        BitBoard.set(reported, index);
+                        conflicts.add(cell);
+                        count++;
+                    }
+                }
+            }
         }
+        return count;
     }
 
-    public static final Parcelable.Creator<GameShipSet> CREATOR = new Parcelable.Creator<GameShipSet>() {
-        public GameShipSet createFromParcel(Parcel in) {
-            return new GameShipSet(in);
-        }
-
-        public GameShipSet[] newArray(int size) {
-            return new GameShipSet[size];
+    private boolean touchesOtherShip(GameCell cell, int shipId) {
+        int gridSize = this.grid.getSize();
+        for (int col = Math.max(cell.getCol() - 1, 0); col <= Math.min(cell.getCol() + 1, gridSize - 1); col++) {
+            for (int row = Math.max(cell.getRow() - 1, 0); row <= Math.min(cell.getRow() + 1, gridSize - 1); row++) {
+                int index = this.grid.getCellIndex(col, row);
+                int count = this.shipCountOnCell[index];
+                if (count > 1 || count == 1 && this.shipIdsOnCell[index] != shipId + 1)
+                    return true;
+            }
         }
-    };
-
-    public GameShipSet(Parcel in) {
-        this.size2Ships = in.createTypedArray(GameShip.CREATOR);
-        this.size3Ships = in.createTypedArray(GameShip.CREATOR);
-        this.size4Ships = in.createTypedArray(GameShip.CREATOR);
-        this.size5Ships = in.createTypedArray(GameShip.CREATOR);
-        this.ships = new GameShip[][] { size2Ships, size3Ships, size4Ships, size5Ships };
-        this.totalShipCount = size2Ships.length + size3Ships.length + size4Ships.length + size5Ships.length;
-        //recreateShipSet has to be called for this.grid and ships to be recovered.
+        return false;
     }
 
-    void recreateShipSet(GameGrid grid) {
-        this.grid = grid;
-
-        for (GameShip[] shipsSizeN : this.ships) {
-            for (GameShip ship : shipsSizeN) {
-                if(ship != null)
-                        ship.recreateShip(this.grid, this);
-            }
-        }
+    /**
+     * Returns the number of ships on the given cell.
+     * @param cell The cell to count ships on
+     * @return Amount if ships ob the given cell
+     */
+    public int shipsOnCell(GameCell cell) {
+        return this.shipCountOnCell[cell.getIndex()];
     }
 
     /**
@@ -243,13 +368,20 @@ public class GameShipSet implements Parcelable{
      * @return The ship containing gameCell.
      */
     public GameShip findShipContainingCell(GameCell gameCell){
-        GameShip shiptoFind = null;
-        if(gameCell.isShip()){
-            for(GameShip[] shipSizeN : this.ships){
-                for(GameShip ship : shipSizeN){
-                    if(ship.containsCell(gameCell)){
-                        return ship;
-                    }
+        int index = gameCell.getIndex();
+        int count = this.shipCountOnCell[index];
+        if (count == 0) {
+            return null;
+        }
+        if (count == 1) {
+            return this.shipsById[this.shipIdsOnCell[index] - 1];
+        }
+
+        // Overlapping ships only occur while placing ships manually. Return the first one.
+        for(GameShip[] shipSizeN : this.ships){
+            for(GameShip ship : shipSizeN){
+                if(ship != null && ship.containsCell(gameCell)){
+                    return ship;
                 }
             }
         }
@@ -0,0 +1,213 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class converts a game to a compact binary snapshot and back. The snapshot is used to parcel
+ * the GameController and to store games on disk. It consists of
+ *
+ *   version, grid size, game mode and current player, one byte each,
+ *   seed and state of the random number generator, one long each,
+ *   number of ships of size 2, 3, 4 and 5, one byte each,
+ *   attempts of player one and two, one short each, and their times in milliseconds, one int each,
+ *
+ * followed by the grids of player one and two and the MoveLog. Each grid consists of two bits per cell, whether
+ * the cell contains a ship and whether it has been attacked, followed by the ships ordered by size.
+ * Each ship is stored as its start cell (a short, -1 if the ship has not been placed yet) and its
+ * orientation (a byte), its length is given by its position. The MoveLog consists of the number
+ * of moves made and the number of moves made or undone, one short each, followed by the events of
+ * these moves. A 10x10 game takes about 100 bytes plus 8 bytes per move.
+ *
+ * The state of the AI is not stored, since it is determined by the grid of player one, cf.
+ * AIBoard.observe(GameGrid).
+ */
+
+final class GameSnapshot {
+
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 * 8 + 4 + 2 * 2 + 2 * 4;
+    private static final int SHIP_BYTES = 3;
+    private static final int EVENT_BYTES = 8;
+
+    private static final int CURRENT_PLAYER = 1;
+    private static final int SHIP = 1;
+    private static final int HIT = 2;
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Creates a snapshot of the given game.
+     * @param controller The game
+     * @return The snapshot
+     */
+    static byte[] write(GameController controller) {
+        GameGrid[] grids = { controller.getGridFirstPlayer(), controller.getGridSecondPlayer() };
+        int gridSize = controller.getGridSize();
+        int[] shipCount = getShipCount(grids[0].getShipSet());
+        int shipTotal = shipCount[0] + shipCount[1] + shipCount[2] + shipCount[3];
+        int cellBytes = (2 * gridSize * gridSize + 7) / 8;
+        MoveLog moveLog = controller.getMoveLog();
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + grids.length * (cellBytes + shipTotal * SHIP_BYTES)
+                + 2 * 2 + moveLog.getEnd() * EVENT_BYTES);
+
+        out.put(VERSION);
+        out.put((byte) gridSize);
+        out.put((byte) controller.getMode().ordinal());
+        out.put((byte) (controller.getCurrentPlayer() ? CURRENT_PLAYER : 0));
+        out.putLong(controller.getRandom().getSeed());
+        out.putLong(controller.getRandom().getState());
+        for (int count : shipCount) {
+            out.put((byte) count);
+        }
+        out.putShort((short) controller.getAttemptsPlayerOne());
+        out.putShort((short) controller.getAttemptsPlayerTwo());
+        out.putInt((int) controller.getTimer(false).getTimeMillis());
+        out.putInt((int) controller.getTimer(true).getTimeMillis());
+        for (GameGrid grid : grids) {
+            writeGrid(out, grid, shipCount, cellBytes);
+        }
+        out.putShort((short) moveLog.size());
+        out.putShort((short) moveLog.getEnd());
+        for (int move = 0; move < moveLog.getEnd(); move++) {
+            out.putLong(moveLog.getEvent(move));
+        }
+        return out.array();
+    }
+
+    private static void writeGrid(ByteBuffer out, GameGrid grid, int[] shipCount, int cellBytes) {
+        long[] shipMask = grid.getShipMask();
+        long[] hitMask = grid.getHitMask();
+        byte[] cells = new byte[cellBytes];
+        for (int cell = 0; cell < grid.getSize() * grid.getSize(); cell++) {
+            int bits = (BitBoard.get(shipMask, cell) ? SHIP : 0) | (BitBoard.get(hitMask, cell) ? HIT : 0);
+            cells[cell >>> 2] |= bits << ((cell & 3) << 1);
+        }
+        out.put(cells);
+
+        GameShipSet shipSet = grid.getShipSet();
+        for (int sizeIndex = 0; sizeIndex < shipCount.length; sizeIndex++) {
+            for (int i = 0; i < shipCount[sizeIndex]; i++) {
+                GameShip ship = shipSet.getShip(sizeIndex, i);
+                out.putShort((short) (ship == null ? -1 : ship.getFirstCell().getIndex()));
+                out.put((byte) (ship == null ? 0 : ship.getOrientation().ordinal()));
+            }
+        }
+    }
+
+    /**
+     * Recreates a game from its snapshot.
+     * @param snapshot The snapshot, as created by write(GameController)
+     * @return The game
+     * @throws IllegalArgumentException if the snapshot is damaged or has an unknown version
+     */
+    static GameController read(byte[] snapshot) {
+        ByteBuffer in = ByteBuffer.wrap(snapshot);
+        try {
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown snapshot version " + version);
+            }
+            int gridSize = in.get() & 0xFF;
+            GameMode mode = GameMode.values()[in.get()];
+            boolean currentPlayer = (in.get() & CURRENT_PLAYER) != 0;
+            GameRandom random = new GameRandom(in.getLong());
+            random.setState(in.getLong());
+            int[] shipCount = new int[4];
+            for (int i = 0; i < shipCount.length; i++) {
+                shipCount[i] = in.get() & 0xFF;
+            }
+            int attemptsPlayerOne = in.getShort();
+            int attemptsPlayerTwo = in.getShort();
+            int timePlayerOne = in.getInt();
+            int timePlayerTwo = in.getInt();
+
+            GameGrid gridFirstPlayer = readGrid(in, gridSize, shipCount, random);
+            GameGrid gridSecondPlayer = readGrid(in, gridSize, shipCount, random);
+            GameController controller = new GameController(mode, random, gridFirstPlayer, gridSecondPlayer, currentPlayer);
+            controller.restoreProgress(attemptsPlayerOne, attemptsPlayerTwo, timePlayerOne, timePlayerTwo);
+            readMoveLog(in, controller.getMoveLog());
+            return controller;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalStateException e) {
+            throw new IllegalArgumentException("The snapshot is damaged.", e);
+        }
+    }
+
+    private static GameGrid readGrid(ByteBuffer in, int gridSize, int[] shipCount, GameRandom random) {
+        GameGrid grid = new GameGrid(gridSize, shipCount, random);
+        int cellCount = gridSize * gridSize;
+        byte[] cells = new byte[(2 * cellCount + 7) / 8];
+        in.get(cells);
+        long[] shipMask = BitBoard.create(cellCount);
+        for (int cell = 0; cell < cellCount; cell++) {
+            int bits = cells[cell >>> 2] >>> ((cell & 3) << 1);
+            if ((bits & SHIP) != 0) {
+                BitBoard.set(shipMask, cell);
+            }
+            // Cells are marked as hit before the ships are placed, which counts the hits of each ship.
+            if ((bits & HIT) != 0) {
+                grid.getCell(cell).setHit(true);
+            }
+        }
+
+        GameShipSet shipSet = grid.getShipSet();
+        for (int sizeIndex = 0; sizeIndex < shipCount.length; sizeIndex++) {
+            for (int i = 0; i < shipCount[sizeIndex]; i++) {
+                int startCell = in.getShort();
+                Direction orientation = Direction.values()[in.get()];
+                if (startCell >= 0) {
+                    shipSet.restoreShip(sizeIndex, i, startCell, orientation);
+                }
+            }
+        }
+        if (!Arrays.equals(shipMask, grid.getShipMask())) {
+            throw new IllegalArgumentException("The ship cells of the snapshot do not match its ships.");
+        }
+        return grid;
+    }
+
+    private static void readMoveLog(ByteBuffer in, MoveLog moveLog) {
+        int size = in.getShort();
+        int end = in.getShort();
+        if (size < 0 || end < size) {
+            throw new IllegalArgumentException("The snapshot is damaged.");
+        }
+        for (int move = 0; move < size; move++) {
+            moveLog.append(in.getLong());
+        }
+        long[] undone = new long[end - size];
+        for (int i = 0; i < undone.length; i++) {
+            undone[i] = in.getLong();
+        }
+        moveLog.restoreUndone(undone);
+    }
+
+    private static int[] getShipCount(GameShipSet shipSet) {
+        return new int[] {
+                shipSet.getNumberOfShipsSize2(),
+                shipSet.getNumberOfShipsSize3(),
+                shipSet.getNumberOfShipsSize4(),
+                shipSet.getNumberOfShipsSize5() };
+    }
+}
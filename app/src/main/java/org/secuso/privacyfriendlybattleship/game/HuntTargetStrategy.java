@@ -0,0 +1,86 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Random;
+
+/**
+ * This strategy searches for ships by attacking random untried cells with an odd sum of column and
+ * row, such that no two attacked cells are next to each other. Once a ship has been hit, it attacks
+ * the cells next to the hit until the ship has been sunk, cf. TargetQueue. It is used by the hard
+ * mode.
+ */
+
+final class HuntTargetStrategy implements AIStrategy {
+
+    private CellPool untriedParityCells;//untried cells with an odd sum of col and row
+    private TargetQueue targets;//cells next to hit ships, attacked before searching further
+
+    @Override
+    public void reset(AIBoard board) {
+        int gridSize = board.getGridSize();
+        this.untriedParityCells = new CellPool(board.getCellCount());
+        this.targets = new TargetQueue(gridSize, board.getUntriedCells());
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (board.isUntried(cell) && (cell % gridSize + cell / gridSize) % 2 == 1) {
+                this.untriedParityCells.add(cell);
+            }
+            if (board.getState(cell) == AIBoard.Cell.SHIP) {
+                this.targets.onHit(cell);
+            }
+        }
+    }
+
+    @Override
+    public int chooseTarget(AIBoard board, Random random) {
+        if (!this.targets.isEmpty()) {
+            return this.targets.pick(random);
+        }
+
+        //get random coordinate to attack; choose no adjacent coordinates as long as possible
+        if (this.untriedParityCells.isEmpty()) {
+            return board.getUntriedCells().pick(random);
+        }
+        return this.untriedParityCells.pick(random);
+    }
+
+    @Override
+    public void onResult(AIBoard board, int cell, MoveResult result) {
+        this.untriedParityCells.remove(cell);
+        if (result.isHit()) {
+            //add adjacent cells to candidates
+            this.targets.onHit(cell);
+            if (result.isSunk()) {
+                this.targets.onSunk(result.getShip());
+            }
+        } else {
+            this.targets.onMiss(cell);
+        }
+    }
+
+    @Override
+    public long getTimeBudget() {
+        return 0;
+    }
+
+    @Override
+    public void setTimeBudget(long millis) {
+    }
+}
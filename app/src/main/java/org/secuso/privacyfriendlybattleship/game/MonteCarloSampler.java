@@ -0,0 +1,264 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class estimates how likely each cell of an attacked grid contains a ship. It samples random
+ * fleets of the remaining ships which are consistent with what is known about the grid: no ship
+ * covers water or a sunk ship, the ships do not overlap and every hit cell of a ship not sunk yet is
+ * covered. Each sampler thread first places ships through the uncovered hit cells and then places
+ * the other ships anywhere. Samples which run into a dead end are discarded.
+ *
+ * Sampling runs on one thread per core until the time budget of the move runs out, so more cores
+ * yield more samples and thus better estimates, while the time needed for a move stays bounded.
+ */
+
+final class MonteCarloSampler {
+
+    // Upper bound for the number of samples of one move, reached early on small grids
+    private static final int MAX_SAMPLES = 1 << 20;
+    // Time the caller waits for the sampler threads after the budget has run out
+    private static final long GRACE_MILLIS = 20;
+
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT,
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "MonteCarloSampler");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final int gridSize;
+
+    MonteCarloSampler(int gridSize) {
+        this.gridSize = gridSize;
+    }
+
+    /**
+     * Samples fleets until the time budget has run out and counts for every cell the samples in
+     * which the cell contains a ship.
+     * @param blocked Cells which cannot contain a ship of the remaining fleet
+     * @param hits Hit cells of ships which have not been sunk yet
+     * @param remainingShips Number of ships of size 2, 3, 4 and 5 which have not been sunk yet
+     * @param random Random number generator the seeds of the sampler threads are drawn from
+     * @param budgetMillis Time budget in milliseconds
+     * @param counts Array receiving the number of samples containing a ship for each cell
+     * @return Number of consistent samples
+     */
+    long sample(long[] blocked, long[] hits, int[] remainingShips, Random random,
+                long budgetMillis, long[] counts) {
+        int[] shipSizes = toShipSizes(remainingShips);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        List<Callable<Worker>> workers = new ArrayList<>(THREAD_COUNT);
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            workers.add(new Worker(blocked, hits, shipSizes, random.nextLong(), deadline,
+                    MAX_SAMPLES / THREAD_COUNT));
+        }
+
+        List<Future<Worker>> results;
+        try {
+            // Threads not done in time are cancelled, so the move cannot take much longer than the budget.
+            results = executor.invokeAll(workers, budgetMillis + GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+
+        long samples = 0;
+        for (Future<Worker> result : results) {
+            Worker worker;
+            try {
+                worker = result.get();
+            } catch (CancellationException | ExecutionException | InterruptedException e) {
+                continue;
+            }
+            samples += worker.samples;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += worker.counts[i];
+            }
+        }
+        return samples;
+    }
+
+    private static int[] toShipSizes(int[] remainingShips) {
+        int count = 0;
+        for (int ships : remainingShips) {
+            count += ships;
+        }
+        // Largest ships first, they are the hardest to place
+        int[] shipSizes = new int[count];
+        int index = 0;
+        for (int size = remainingShips.length + 1; size >= 2; size--) {
+            for (int i = 0; i < remainingShips[size - 2]; i++) {
+                shipSizes[index++] = size;
+            }
+        }
+        return shipSizes;
+    }
+
+    private final class Worker implements Callable<Worker> {
+
+        private final long[] blocked;
+        private final long[] hits;
+        private final int[] shipSizes;
+        private final Random random;
+        private final long deadline;
+        private final int maxSamples;
+        private final PlacementTable[][] tables;//tables of each ship for both axes
+
+        private final long[] occupied;
+        private final long[] uncovered;
+        private final boolean[] placed;
+        private final int[] candidateShips;
+        private final int[] candidatePlacements;
+
+        final long[] counts;
+        long samples;
+
+        Worker(long[] blocked, long[] hits, int[] shipSizes, long seed, long deadline, int maxSamples) {
+            int cellCount = gridSize * gridSize;
+            this.blocked = blocked.clone();
+            this.hits = hits.clone();
+            this.shipSizes = shipSizes;
+            this.random = new GameRandom(seed);
+            this.deadline = deadline;
+            this.maxSamples = maxSamples;
+            this.tables = new PlacementTable[shipSizes.length][2];
+            for (int i = 0; i < shipSizes.length; i++) {
+                this.tables[i][FleetPlacer.HORIZONTAL] = PlacementTable.get(gridSize, shipSizes[i], Direction.WEST);
+                this.tables[i][FleetPlacer.VERTICAL] = PlacementTable.get(gridSize, shipSizes[i], Direction.NORTH);
+            }
+            this.occupied = BitBoard.create(cellCount);
+            this.uncovered = BitBoard.create(cellCount);
+            this.placed = new boolean[shipSizes.length];
+            this.candidateShips = new int[2 * shipSizes.length * cellCount];
+            this.candidatePlacements = new int[2 * shipSizes.length * cellCount];
+            this.counts = new long[cellCount];
+        }
+
+        @Override
+        public Worker call() {
+            while (this.samples < this.maxSamples && System.nanoTime() < this.deadline
+                    && !Thread.currentThread().isInterrupted()) {
+                if (sampleFleet()) {
+                    countShipCells();
+                    this.samples++;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Places the remaining fleet on the grid.
+         * @return False if the fleet ran into a dead end and has to be discarded
+         */
+        private boolean sampleFleet() {
+            System.arraycopy(this.blocked, 0, this.occupied, 0, this.occupied.length);
+            System.arraycopy(this.hits, 0, this.uncovered, 0, this.uncovered.length);
+            for (int i = 0; i < this.placed.length; i++) {
+                this.placed[i] = false;
+            }
+
+            // Cover the hit cells first
+            int cell;
+            while ((cell = firstCell(this.uncovered)) >= 0) {
+                int count = 0;
+                for (int ship = 0; ship < this.shipSizes.length; ship++) {
+                    if (this.placed[ship])
+                        continue;
+                    for (int axis = FleetPlacer.HORIZONTAL; axis <= FleetPlacer.VERTICAL; axis++) {
+                        PlacementTable table = this.tables[ship][axis];
+                        for (int i = 0; i < table.getCount(); i++) {
+                            if (table.coversCell(i, cell) && !table.intersects(i, this.occupied)) {
+                                this.candidateShips[count] = ship;
+                                this.candidatePlacements[count++] = (i << 1) | axis;
+                            }
+                        }
+                    }
+                }
+                if (count == 0)
+                    return false;
+                int pick = this.random.nextInt(count);
+                place(this.candidateShips[pick], this.candidatePlacements[pick]);
+            }
+
+            // Place the remaining ships anywhere
+            for (int ship = 0; ship < this.shipSizes.length; ship++) {
+                if (this.placed[ship])
+                    continue;
+                int count = 0;
+                for (int axis = FleetPlacer.HORIZONTAL; axis <= FleetPlacer.VERTICAL; axis++) {
+                    PlacementTable table = this.tables[ship][axis];
+                    for (int i = 0; i < table.getCount(); i++) {
+                        if (!table.intersects(i, this.occupied)) {
+                            this.candidatePlacements[count++] = (i << 1) | axis;
+                        }
+                    }
+                }
+                if (count == 0)
+                    return false;
+                place(ship, this.candidatePlacements[this.random.nextInt(count)]);
+            }
+            return true;
+        }
+
+        private void place(int ship, int placement) {
+            PlacementTable table = this.tables[ship][FleetPlacer.getAxis(placement)];
+            int index = FleetPlacer.getTableIndex(placement);
+            table.addTo(index, this.occupied);
+            table.removeFrom(index, this.uncovered);
+            this.placed[ship] = true;
+        }
+
+        private void countShipCells() {
+            for (int i = 0; i < this.occupied.length; i++) {
+                long word = this.occupied[i] & ~this.blocked[i];
+                while (word != 0) {
+                    this.counts[(i << 6) + Long.numberOfTrailingZeros(word)]++;
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private int firstCell(long[] board) {
+            for (int i = 0; i < board.length; i++) {
+                if (board[i] != 0) {
+                    return (i << 6) + Long.numberOfTrailingZeros(board[i]);
+                }
+            }
+            return -1;
+        }
+    }
+}
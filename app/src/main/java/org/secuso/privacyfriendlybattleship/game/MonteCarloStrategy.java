@@ -0,0 +1,76 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This strategy attacks the untried cell which contains a ship in the most fleets sampled within
+ * the time budget of the move, cf. MonteCarloSampler. As long as no ship has been hit, counting the
+ * placements of single ships is about as accurate and much faster, so the DensityStrategy is used
+ * instead. It is used by the expert mode.
+ */
+
+final class MonteCarloStrategy implements AIStrategy {
+
+    // Default time in milliseconds the strategy may spend on sampling fleets for one move
+    static final long DEFAULT_TIME_BUDGET = 50;
+
+    private final DensityStrategy density = new DensityStrategy();
+    private MonteCarloSampler sampler;
+    private long[] cellWeights;//reused for every move
+    private long timeBudget = DEFAULT_TIME_BUDGET;
+
+    @Override
+    public void reset(AIBoard board) {
+        this.density.reset(board);
+        this.sampler = new MonteCarloSampler(board.getGridSize());
+        this.cellWeights = new long[board.getCellCount()];
+    }
+
+    @Override
+    public int chooseTarget(AIBoard board, Random random) {
+        if (!BitBoard.isEmpty(board.getHitCells())) {
+            Arrays.fill(this.cellWeights, 0L);
+            long samples = this.sampler.sample(board.getBlockedCells(), board.getHitCells(),
+                    board.getRemainingShips(), random, this.timeBudget, this.cellWeights);
+            if (samples > 0) {
+                return DensityStrategy.findHeaviestCell(board, this.cellWeights, random);
+            }
+        }
+        return this.density.chooseTarget(board, random);
+    }
+
+    @Override
+    public void onResult(AIBoard board, int cell, MoveResult result) {
+        this.density.onResult(board, cell, result);
+    }
+
+    @Override
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    @Override
+    public void setTimeBudget(long millis) {
+        this.timeBudget = millis;
+    }
+}
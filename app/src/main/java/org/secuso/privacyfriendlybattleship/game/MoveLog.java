@@ -0,0 +1,218 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+/**
+ * This class records the moves of a game in the order they have been made. Each move is stored as
+ * one event in a primitive array, packed into a long:
+ *
+ *   bits 0 to 15: index of the attacked cell,
+ *   bit 16: player who has made the move, set for player two,
+ *   bits 17 and 18: result of the move, cf. MoveResult.Type,
+ *   bits 32 to 63: time the player has spent on the move in milliseconds.
+ *
+ * Every cell of each grid is attacked at most once, so the log never holds more than twice the
+ * number of cells of a grid and never grows. Undone moves are kept until a different move is
+ * made, so they can be redone. The same events are written to the GameJournal.
+ */
+
+public final class MoveLog {
+
+    private static final int CELL_MASK = 0xFFFF;
+    private static final int PLAYER_SHIFT = 16;
+    private static final int RESULT_SHIFT = 17;
+    private static final int TIME_SHIFT = 32;
+
+    private static final MoveResult.Type[] RESULTS = MoveResult.Type.values();
+
+    private final long[] events;
+    private int size;//number of moves made
+    private int end;//number of moves made or undone, undone moves are events[size..end - 1]
+    private final long[] times = new long[2];//time spent by each player on the moves made
+
+    /**
+     * Creates an empty log for a game on a grid of the given size.
+     */
+    MoveLog(int gridSize) {
+        this.events = new long[2 * gridSize * gridSize];
+    }
+
+    static long encode(int cell, boolean player, MoveResult.Type result, int timeDelta) {
+        return (cell & CELL_MASK) | (player ? 1L << PLAYER_SHIFT : 0)
+                | ((long) result.ordinal() << RESULT_SHIFT) | ((long) timeDelta << TIME_SHIFT);
+    }
+
+    static int getCell(long event) {
+        return (int) event & CELL_MASK;
+    }
+
+    static boolean getPlayer(long event) {
+        return (event & (1L << PLAYER_SHIFT)) != 0;
+    }
+
+    static MoveResult.Type getResult(long event) {
+        return RESULTS[(int) (event >>> RESULT_SHIFT) & 3];
+    }
+
+    static int getTimeDelta(long event) {
+        return (int) (event >>> TIME_SHIFT);
+    }
+
+    /**
+     * Records a move. If the move equals the next undone move, it is redone with its original
+     * time. Otherwise the undone moves are discarded.
+     * @return The event of the move
+     */
+    long append(int cell, boolean player, MoveResult.Type result, int timeDelta) {
+        if (this.size < this.end) {
+            long undone = this.events[this.size];
+            if (getCell(undone) == cell && getPlayer(undone) == player) {
+                redo();
+                return undone;
+            }
+        }
+        long event = encode(cell, player, result, timeDelta);
+        append(event);
+        return event;
+    }
+
+    /**
+     * Records the given event, e.g. when a game is restored, and discards the undone moves.
+     */
+    void append(long event) {
+        if (this.size == this.events.length) {
+            throw new IllegalStateException("Every cell has already been attacked.");
+        }
+        this.events[this.size++] = event;
+        this.end = this.size;
+        this.times[getPlayer(event) ? 1 : 0] += getTimeDelta(event);
+    }
+
+    /**
+     * Takes back the last move. It is kept, such that it can be redone.
+     * @return The event of the move
+     */
+    long undo() {
+        if (this.size == 0) {
+            throw new IllegalStateException("There is no move to undo.");
+        }
+        long event = this.events[--this.size];
+        this.times[getPlayer(event) ? 1 : 0] -= getTimeDelta(event);
+        return event;
+    }
+
+    private void redo() {
+        long event = this.events[this.size++];
+        this.times[getPlayer(event) ? 1 : 0] += getTimeDelta(event);
+    }
+
+    /**
+     * Returns the event of the move which would be redone next.
+     * @throws IllegalStateException if there is no undone move
+     */
+    long peekRedo() {
+        if (this.size == this.end) {
+            throw new IllegalStateException("There is no move to redo.");
+        }
+        return this.events[this.size];
+    }
+
+    /**
+     * Returns the number of moves made, not counting undone moves.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean canUndo() {
+        return this.size > 0;
+    }
+
+    public boolean canRedo() {
+        return this.size < this.end;
+    }
+
+    /**
+     * Returns the index of the cell attacked by the given move.
+     * @param move Number of the move, between 0 and size() - 1
+     */
+    public int getCell(int move) {
+        return getCell(this.events[move]);
+    }
+
+    /**
+     * Returns the player who has made the given move. False for player one, true for player two.
+     * @param move Number of the move, between 0 and size() - 1
+     */
+    public boolean getPlayer(int move) {
+        return getPlayer(this.events[move]);
+    }
+
+    /**
+     * Returns the result of the given move.
+     * @param move Number of the move, between 0 and size() - 1
+     */
+    public MoveResult.Type getResult(int move) {
+        return getResult(this.events[move]);
+    }
+
+    /**
+     * Returns the time the player has spent on the given move in milliseconds.
+     * @param move Number of the move, between 0 and size() - 1
+     */
+    public int getTimeDelta(int move) {
+        return getTimeDelta(this.events[move]);
+    }
+
+    /**
+     * Returns the time the given player has spent on the moves made in milliseconds.
+     * @param player False for player one, true for player two
+     */
+    public long getTime(boolean player) {
+        return this.times[player ? 1 : 0];
+    }
+
+    /**
+     * Returns the number of moves made or undone, cf. getEvent(int).
+     */
+    int getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the event of the given move, including undone moves.
+     * @param move Number of the move, between 0 and getEnd() - 1
+     */
+    long getEvent(int move) {
+        return this.events[move];
+    }
+
+    /**
+     * Restores the undone moves after the moves made have been appended, e.g. when a game is
+     * restored from a snapshot.
+     */
+    void restoreUndone(long[] undone) {
+        if (this.size + undone.length > this.events.length) {
+            throw new IllegalArgumentException("Too many moves.");
+        }
+        System.arraycopy(undone, 0, this.events, this.size, undone.length);
+        this.end = this.size + undone.length;
+    }
+}
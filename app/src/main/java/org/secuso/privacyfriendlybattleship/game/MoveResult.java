@@ -0,0 +1,88 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+/**
+ * This class represents the outcome of a move, as returned by GameController.makeMove. If the move
+ * has sunk a ship, the result also provides the ship.
+ */
+
+public final class MoveResult {
+
+    public enum Type {
+        MISS, HIT, SUNK, FLEET_DESTROYED
+    }
+
+    static final MoveResult MISS = new MoveResult(Type.MISS, null);
+    static final MoveResult HIT = new MoveResult(Type.HIT, null);
+
+    private final Type type;
+    private final GameShip ship;
+
+    private MoveResult(Type type, GameShip ship) {
+        this.type = type;
+        this.ship = ship;
+    }
+
+    static MoveResult sunk(GameShip ship, boolean fleetDestroyed) {
+        return new MoveResult(fleetDestroyed ? Type.FLEET_DESTROYED : Type.SUNK, ship);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns true if the attacked cell contained a ship.
+     * @return True for every result but MISS
+     */
+    public boolean isHit() {
+        return type != Type.MISS;
+    }
+
+    /**
+     * Returns true if the move has destroyed a ship. This is also the case if the move has
+     * destroyed the last ship of the fleet.
+     * @return True for SUNK and FLEET_DESTROYED
+     */
+    public boolean isSunk() {
+        return type == Type.SUNK || type == Type.FLEET_DESTROYED;
+    }
+
+    public boolean isFleetDestroyed() {
+        return type == Type.FLEET_DESTROYED;
+    }
+
+    /**
+     * Returns the ship destroyed by the move.
+     * @return The ship sunk or null if no ship has been sunk
+     */
+    public GameShip getShip() {
+        return ship;
+    }
+
+    /**
+     * Returns the size of the ship destroyed by the move.
+     * @return Size of the ship sunk or 0 if no ship has been sunk
+     */
+    public int getSunkShipSize() {
+        return ship == null ? 0 : ship.getSize();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class contains the cells the expert AI attacks on an empty board as long as every shot
+ * misses. Until the first hit the moves only depend on the grid size and the fleet, so they are
+ * computed once per grid size and fleet and stored in a small file, cf. FileStorage.
+ *
+ * The book is computed with the placement weights of ProbabilityMap, the way DensityStrategy would
+ * choose the moves, but breaking ties by the lowest cell index. An empty board looks the same when
+ * it is rotated or mirrored, so the book stays valid under each of the eight symmetries of the
+ * grid. The AI plays the book under a random symmetry, cf. OpeningStrategy, such that its opening
+ * is not the same in every game.
+ */
+
+final class OpeningBook {
+
+    private static final int VERSION = 1;
+    private static final String FILE_PREFIX = "opening_book_";
+
+    private static final Map<String, OpeningBook> books = new HashMap<>();
+
+    private final int gridSize;
+    private final int[] shipCount;
+    private final short[] cells;//cells attacked one after another
+
+    private OpeningBook(int gridSize, int[] shipCount, short[] cells) {
+        this.gridSize = gridSize;
+        this.shipCount = shipCount;
+        this.cells = cells;
+    }
+
+    /**
+     * Returns the book of the given grid size and fleet. It is loaded from its file or computed on
+     * first access, so this should not be called on the UI thread.
+     * @param gridSize Size of the grid
+     * @param shipCount Number of ships of size 2, 3, 4 and 5
+     * @return The book
+     */
+    static OpeningBook get(int gridSize, int[] shipCount) {
+        String name = FILE_PREFIX + gridSize + "_" + shipCount[0] + "_" + shipCount[1] + "_"
+                + shipCount[2] + "_" + shipCount[3];
+        synchronized (books) {
+            OpeningBook book = books.get(name);
+            if (book == null) {
+                final File file = FileStorage.getFile(name);
+                book = load(file, gridSize, shipCount);
+                if (book == null) {
+                    book = compute(gridSize, shipCount.clone());
+                    if (file != null) {
+                        final OpeningBook computed = book;
+                        FileStorage.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                computed.save(file);
+                            }
+                        });
+                    }
+                }
+                books.put(name, book);
+            }
+            return book;
+        }
+    }
+
+    private static OpeningBook compute(int gridSize, int[] shipCount) {
+        AIBoard board = new AIBoard(gridSize, shipCount);
+        ProbabilityMap map = new ProbabilityMap(board);
+        long[] cellWeights = new long[board.getCellCount()];
+        short[] cells = new short[board.getCellCount()];
+        int length = 0;
+        while (true) {
+            map.getWeights(board, cellWeights);
+            int bestCell = -1;
+            long bestWeight = 0;
+            for (int cell = 0; cell < cellWeights.length; cell++) {
+                if (board.isUntried(cell) && cellWeights[cell] > bestWeight) {
+                    bestWeight = cellWeights[cell];
+                    bestCell = cell;
+                }
+            }
+            if (bestCell < 0) {
+                // No fleet fits on the untried cells anymore, so a shot cannot miss them all.
+                break;
+            }
+            cells[length++] = (short) bestCell;
+            board.record(bestCell, MoveResult.MISS);
+            map.onResult(bestCell, MoveResult.MISS);
+        }
+        short[] book = new short[length];
+        System.arraycopy(cells, 0, book, 0, length);
+        return new OpeningBook(gridSize, shipCount, book);
+    }
+
+    /**
+     * Returns the number of moves in the book.
+     */
+    int getLength() {
+        return cells.length;
+    }
+
+    /**
+     * Returns the cell attacked by the given move of the book, transformed by the given symmetry.
+     * @param move Number of the move, between 0 and getLength() - 1
+     * @param symmetry Number between 0 and 7. Bit 0 mirrors the columns, bit 1 mirrors the rows and
+     *                 bit 2 swaps columns and rows.
+     * @return Index of the cell
+     */
+    int getCell(int move, int symmetry) {
+        int cell = this.cells[move];
+        int col = cell % this.gridSize;
+        int row = cell / this.gridSize;
+        if ((symmetry & 1) != 0) {
+            col = this.gridSize - 1 - col;
+        }
+        if ((symmetry & 2) != 0) {
+            row = this.gridSize - 1 - row;
+        }
+        if ((symmetry & 4) != 0) {
+            int swap = col;
+            col = row;
+            row = swap;
+        }
+        return row * this.gridSize + col;
+    }
+
+    private static OpeningBook load(File file, int gridSize, int[] shipCount) {
+        if (file == null || !file.exists())
+            return null;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != VERSION || in.readInt() != gridSize)
+                return null;
+            for (int count : shipCount) {
+                if (in.readInt() != count)
+                    return null;
+            }
+            int length = in.readInt();
+            if (length < 0 || length > gridSize * gridSize)
+                return null;
+            short[] cells = new short[length];
+            for (int i = 0; i < length; i++) {
+                cells[i] = in.readShort();
+                if (cells[i] < 0 || cells[i] >= gridSize * gridSize)
+                    return null;
+            }
+            return new OpeningBook(gridSize, shipCount.clone(), cells);
+        } catch (IOException e) {
+            // A damaged book is computed again.
+            return null;
+        } finally {
+            FileStorage.close(in);
+        }
+    }
+
+    private void save(File file) {
+        FileStorage.replace(file, new FileStorage.Content() {
+            @Override
+            public void writeTo(DataOutputStream out) throws IOException {
+                out.writeInt(VERSION);
+                out.writeInt(gridSize);
+                for (int count : shipCount) {
+                    out.writeInt(count);
+                }
+                out.writeInt(cells.length);
+                for (short cell : cells) {
+                    out.writeShort(cell);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,99 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Random;
+
+/**
+ * This strategy plays the moves of the OpeningBook until the first ship is hit. Afterwards, or if
+ * the game did not start with an empty board, the moves are chosen by the given fallback strategy,
+ * which is informed about every result, including those of the book moves. It is used by the
+ * expert mode on top of the MonteCarloStrategy.
+ *
+ * The book does not know the placement habits of the player. Once the AI has seen at least
+ * MIN_HABIT_GAMES fleets of the player on the grid size, cf. PlacementHabits, it trusts the habits
+ * more than the book and the fallback strategy is used from the first move on. The habits of a few
+ * games mostly reflect chance, so the book is kept until then.
+ */
+
+final class OpeningStrategy implements AIStrategy {
+
+    // Number of recorded fleets from which on the book is replaced by the placement habits
+    static final int MIN_HABIT_GAMES = 5;
+
+    private final AIStrategy fallback;
+    private OpeningBook book;
+    private boolean inBook;//true as long as all moves have been taken from the book
+    private int move;//number of the next move of the book
+    private int symmetry;
+
+    OpeningStrategy(AIStrategy fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void reset(AIBoard board) {
+        this.fallback.reset(board);
+        this.book = null;
+        this.inBook = board.getUntriedCells().size() == board.getCellCount();
+        this.move = 0;
+    }
+
+    @Override
+    public int chooseTarget(AIBoard board, Random random) {
+        if (this.inBook && this.book == null) {
+            // Loading the book and the habits may access the disk, so this is done on the first move.
+            if (PlacementHabits.forGridSize(board.getGridSize()).getGames() >= MIN_HABIT_GAMES) {
+                this.inBook = false;
+            } else {
+                this.book = OpeningBook.get(board.getGridSize(), board.getRemainingShips());
+                this.symmetry = random.nextInt(8);
+            }
+        }
+        if (this.inBook && this.move < this.book.getLength()) {
+            return this.book.getCell(this.move, this.symmetry);
+        }
+        this.inBook = false;
+        return this.fallback.chooseTarget(board, random);
+    }
+
+    @Override
+    public void onResult(AIBoard board, int cell, MoveResult result) {
+        this.fallback.onResult(board, cell, result);
+        // The book has not been loaded if the move has not been chosen by this strategy, e.g. if
+        // the EndgameStrategy on top of it has found few enough layouts to solve the game.
+        if (this.inBook && this.book != null && !result.isHit() && this.move < this.book.getLength()
+                && this.book.getCell(this.move, this.symmetry) == cell) {
+            this.move++;
+        } else {
+            this.inBook = false;
+        }
+    }
+
+    @Override
+    public long getTimeBudget() {
+        return this.fallback.getTimeBudget();
+    }
+
+    @Override
+    public void setTimeBudget(long millis) {
+        this.fallback.setTimeBudget(millis);
+    }
+}
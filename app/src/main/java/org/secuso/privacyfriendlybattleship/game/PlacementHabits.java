@@ -0,0 +1,170 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class learns where the player tends to place ships. For each grid size it counts for every
+ * cell in how many games the fleet of the player covered the cell. The AI uses these counts as a
+ * prior when searching for ships, cf. DensityStrategy.
+ *
+ * The counts of a grid size are stored in a small binary file, cf. FileStorage. The file is read when
+ * the AI first needs the model and written on the storage thread whenever a fleet has been
+ * recorded. Once a model has seen MAX_GAMES games, all counts are halved, so recent games weigh
+ * more than old ones.
+ */
+
+public final class PlacementHabits {
+
+    private static final int VERSION = 1;
+    private static final int MAX_GAMES = 1024;
+    private static final String FILE_PREFIX = "placement_habits_";
+
+    private static final Map<Integer, PlacementHabits> models = new HashMap<>();
+
+    private final int gridSize;
+    private final File file;
+    private final int[] shipCounts;//number of games in which each cell contained a ship
+    private int games;
+
+    private PlacementHabits(int gridSize, File file) {
+        this.gridSize = gridSize;
+        this.file = file;
+        this.shipCounts = new int[gridSize * gridSize];
+    }
+
+    /**
+     * Returns the model of the given grid size. It is loaded from its file on first access, so this
+     * should not be called on the UI thread.
+     * @param gridSize Size of the grid
+     * @return The model
+     */
+    static PlacementHabits forGridSize(int gridSize) {
+        synchronized (models) {
+            PlacementHabits model = models.get(gridSize);
+            if (model == null) {
+                model = new PlacementHabits(gridSize, FileStorage.getFile(FILE_PREFIX + gridSize));
+                model.load();
+                models.put(gridSize, model);
+            }
+            return model;
+        }
+    }
+
+    /**
+     * Adds the fleet placed on the given grid to the model of its size. The fleet is copied right
+     * away, the model is updated and stored in the background.
+     * @param grid Grid on which the player has placed the ships
+     */
+    public static void recordFleet(GameGrid grid) {
+        final int gridSize = grid.getSize();
+        final long[] shipMask = grid.getShipMask().clone();
+        FileStorage.execute(new Runnable() {
+            @Override
+            public void run() {
+                PlacementHabits model = forGridSize(gridSize);
+                model.add(shipMask);
+                model.save();
+            }
+        });
+    }
+
+    private synchronized void add(long[] shipMask) {
+        if (this.games == MAX_GAMES) {
+            for (int i = 0; i < this.shipCounts.length; i++) {
+                this.shipCounts[i] /= 2;
+            }
+            this.games /= 2;
+        }
+        for (int cell = 0; cell < this.shipCounts.length; cell++) {
+            if (BitBoard.get(shipMask, cell)) {
+                this.shipCounts[cell]++;
+            }
+        }
+        this.games++;
+    }
+
+    /**
+     * Multiplies the weight of each cell by the number of recorded games plus the number of games
+     * in which the cell contained a ship. Cells the player likes to place ships on therefore get up
+     * to twice the weight of cells avoided by the player. Without recorded games the weights are
+     * not changed.
+     * @param cellWeights Weight of each cell
+     */
+    synchronized void applyTo(long[] cellWeights) {
+        if (this.games == 0)
+            return;
+        for (int cell = 0; cell < this.shipCounts.length; cell++) {
+            cellWeights[cell] *= this.games + this.shipCounts[cell];
+        }
+    }
+
+    synchronized int getGames() {
+        return games;
+    }
+
+    private void load() {
+        if (this.file == null || !this.file.exists())
+            return;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+            if (in.readInt() != VERSION || in.readInt() != this.gridSize)
+                return;
+            int games = in.readInt();
+            for (int i = 0; i < this.shipCounts.length; i++) {
+                this.shipCounts[i] = in.readInt();
+            }
+            this.games = games;
+        } catch (IOException e) {
+            // A damaged model is discarded, the AI simply starts learning again.
+            Arrays.fill(this.shipCounts, 0);
+            this.games = 0;
+        } finally {
+            FileStorage.close(in);
+        }
+    }
+
+    private synchronized void save() {
+        if (this.file == null)
+            return;
+        // If the file cannot be written, the model is stored again after the next game.
+        FileStorage.replace(this.file, new FileStorage.Content() {
+            @Override
+            public void writeTo(DataOutputStream out) throws IOException {
+                out.writeInt(VERSION);
+                out.writeInt(gridSize);
+                out.writeInt(games);
+                for (int count : shipCounts) {
+                    out.writeInt(count);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,282 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class contains every legal placement of a ship of a given size and orientation on a grid of
+ * a given size. Each placement is stored as a bitboard of the cells it covers together with the
+ * start cell a GameShip would use for it. Tables are built on first use and shared by the whole
+ * process, so ship placement and the AI do not enumerate placements on every call.
+ *
+ * Ships facing NORTH and SOUTH (or EAST and WEST) cover the same sets of cells. Code that is only
+ * interested in the covered cells should therefore use the tables for NORTH and WEST, whose start
+ * cells are the top and the left cell of the ship respectively.
+ */
+
+public final class PlacementTable {
+
+    private static final Map<Integer, PlacementTable> tables = new HashMap<>();
+
+    private final int gridSize;
+    private final int shipSize;
+    private final Direction orientation;
+    private final int words;
+    private final int count;
+    private final long[] masks;//masks of all placements, words longs per placement
+    private final long[] haloMasks;//masks of the cells of the placements and their neighbours
+    private final int[] startCells;
+    private final int[] coveringStart;//placements covering cell i are coveringPlacements[coveringStart[i]..coveringStart[i + 1]]
+    private final int[] coveringPlacements;
+
+    /**
+     * Returns the table for the given grid size, ship size and orientation.
+     * @param gridSize Size of the grid
+     * @param shipSize Size of the ship
+     * @param orientation Direction the ship is facing
+     * @return The placement table
+     */
+    public static PlacementTable get(int gridSize, int shipSize, Direction orientation) {
+        Integer key = (gridSize << 16) | (shipSize << 8) | orientation.ordinal();
+        synchronized (tables) {
+            PlacementTable table = tables.get(key);
+            if (table == null) {
+                table = new PlacementTable(gridSize, shipSize, orientation);
+                tables.put(key, table);
+            }
+            return table;
+        }
+    }
+
+    private PlacementTable(int gridSize, int shipSize, Direction orientation) {
+        this.gridSize = gridSize;
+        this.shipSize = shipSize;
+        this.orientation = orientation;
+        this.words = BitBoard.words(gridSize * gridSize);
+
+        boolean vertical = orientation == Direction.NORTH || orientation == Direction.SOUTH;
+        int freeCols = vertical ? gridSize : gridSize - shipSize + 1;
+        int freeRows = vertical ? gridSize - shipSize + 1 : gridSize;
+        this.count = shipSize > gridSize ? 0 : freeCols * freeRows;
+        this.masks = new long[this.count * this.words];
+        this.haloMasks = new long[this.count * this.words];
+        this.startCells = new int[this.count];
+
+        int step = vertical ? gridSize : 1;
+        int placement = 0;
+        for (int row = 0; row < freeRows; row++) {
+            for (int col = 0; col < freeCols; col++) {
+                int first = row * gridSize + col;
+                for (int i = 0; i < shipSize; i++) {
+                    int cell = first + i * step;
+                    this.masks[placement * this.words + (cell >>> 6)] |= 1L << cell;
+                }
+                int lastCol = vertical ? col : col + shipSize - 1;
+                int lastRow = vertical ? row + shipSize - 1 : row;
+                for (int haloRow = Math.max(row - 1, 0); haloRow <= Math.min(lastRow + 1, gridSize - 1); haloRow++) {
+                    for (int haloCol = Math.max(col - 1, 0); haloCol <= Math.min(lastCol + 1, gridSize - 1); haloCol++) {
+                        int cell = haloRow * gridSize + haloCol;
+                        this.haloMasks[placement * this.words + (cell >>> 6)] |= 1L << cell;
+                    }
+                }
+
+                // Ships facing SOUTH or EAST start with their bottom or right cell.
+                int last = first + (shipSize - 1) * step;
+                this.startCells[placement] =
+                        (orientation == Direction.SOUTH || orientation == Direction.EAST) ? last : first;
+                placement++;
+            }
+        }
+
+        // Index the placements covering each cell
+        int cellCount = gridSize * gridSize;
+        this.coveringStart = new int[cellCount + 1];
+        this.coveringPlacements = new int[this.count * shipSize];
+        int[] cells = new int[shipSize];
+        for (int i = 0; i < this.count; i++) {
+            getCells(i, cells);
+            for (int cell : cells) this.coveringStart[cell + 1]++;
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            this.coveringStart[cell + 1] += this.coveringStart[cell];
+        }
+        int[] next = new int[cellCount];
+        for (int i = 0; i < this.count; i++) {
+            getCells(i, cells);
+            for (int cell : cells) {
+                this.coveringPlacements[this.coveringStart[cell] + next[cell]++] = i;
+            }
+        }
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    public int getShipSize() {
+        return shipSize;
+    }
+
+    public Direction getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * Returns the number of placements in this table.
+     * @return Number of placements
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the index of the cell a GameShip placed this way starts with.
+     * @param placement Index of the placement
+     * @return Index of the start cell
+     */
+    public int getStartCell(int placement) {
+        return startCells[placement];
+    }
+
+    /**
+     * Writes the indices of the cells covered by the placement to the given array.
+     * @param placement Index of the placement
+     * @param cells Array of at least the size of the ship
+     */
+    public void getCells(int placement, int[] cells) {
+        int offset = placement * this.words;
+        int count = 0;
+        for (int i = 0; i < this.words; i++) {
+            long word = this.masks[offset + i];
+            while (word != 0) {
+                cells[count++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of placements covering the given cell.
+     */
+    public int getCoveringCount(int cell) {
+        return coveringStart[cell + 1] - coveringStart[cell];
+    }
+
+    /**
+     * Returns one of the placements covering the given cell.
+     * @param cell Index of the cell
+     * @param i Number between 0 and getCoveringCount(cell) - 1
+     * @return Index of the placement
+     */
+    public int getCoveringPlacement(int cell, int i) {
+        return coveringPlacements[coveringStart[cell] + i];
+    }
+
+    /**
+     * Returns true if the placement covers at least one cell of the given bitboard.
+     */
+    public boolean intersects(int placement, long[] board) {
+        int offset = placement * this.words;
+        for (int i = 0; i < this.words; i++) {
+            if ((this.masks[offset + i] & board[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the placement covers the cell with the given index.
+     */
+    public boolean coversCell(int placement, int cell) {
+        return (this.masks[placement * this.words + (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Returns true if the placement covers every cell of the given bitboard.
+     */
+    public boolean covers(int placement, long[] board) {
+        int offset = placement * this.words;
+        for (int i = 0; i < this.words; i++) {
+            if ((board[i] & ~this.masks[offset + i]) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of cells of the given bitboard covered by the placement.
+     */
+    public int countCovered(int placement, long[] board) {
+        int offset = placement * this.words;
+        int count = 0;
+        for (int i = 0; i < this.words; i++) {
+            count += Long.bitCount(this.masks[offset + i] & board[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Adds the given weight to the entries of the cells covered by the placement.
+     * @param placement Index of the placement
+     * @param weight Weight to be added
+     * @param cellWeights Weights of all cells, indexed by cell index
+     */
+    public void addWeight(int placement, long weight, long[] cellWeights) {
+        int offset = placement * this.words;
+        for (int i = 0; i < this.words; i++) {
+            long word = this.masks[offset + i];
+            while (word != 0) {
+                cellWeights[(i << 6) + Long.numberOfTrailingZeros(word)] += weight;
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Sets the bits of the cells covered by the placement on the given bitboard.
+     */
+    public void addTo(int placement, long[] board) {
+        int offset = placement * this.words;
+        for (int i = 0; i < this.words; i++) {
+            board[i] |= this.masks[offset + i];
+        }
+    }
+
+    /**
+     * Sets the bits of the cells covered by the placement and of all cells next to them on the
+     * given bitboard. Cells diagonal to the ship are considered next to it.
+     */
+    public void addHaloTo(int placement, long[] board) {
+        int offset = placement * this.words;
+        for (int i = 0; i < this.words; i++) {
+            board[i] |= this.haloMasks[offset + i];
+        }
+    }
+
+    /**
+     * Clears the bits of the cells covered by the placement on the given bitboard.
+     */
+    public void removeFrom(int placement, long[] board) {
+        int offset = placement * this.words;
+        for (int i = 0; i < this.words; i++) {
+            board[i] &= ~this.masks[offset + i];
+        }
+    }
+}
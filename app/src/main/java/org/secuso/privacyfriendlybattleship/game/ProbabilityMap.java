@@ -0,0 +1,147 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+/**
+ * This class maintains for every cell the weighted number of placements of the remaining ships
+ * covering it. Placements covering water or a sunk ship are impossible, each hit cell covered by a
+ * placement multiplies its weight by HIT_WEIGHT. The map is built once from the board and then
+ * updated after each move: a miss removes the placements covering the missed cell, a hit
+ * re-weights the placements covering the hit cell, and a sunk ship removes the placements covering
+ * its cells. The cost of an update therefore depends on the number of placements through the
+ * attacked cells, not on the size of the grid.
+ *
+ * The weights are kept separately for each ship size and multiplied by the number of remaining
+ * ships of that size when they are read, so sinking a ship does not change the weights of the other
+ * placements of its size.
+ */
+
+final class ProbabilityMap {
+
+    // Weight of a placement covering a hit cell, relative to a placement covering no hit cell
+    static final long HIT_WEIGHT = 32;
+
+    private static final int MIN_SIZE = 2;
+    private static final int MAX_SIZE = 5;
+
+    private final int cellCount;
+    private final PlacementTable[][] tables;//indexed by size - MIN_SIZE and axis
+    private final long[][][] placementWeights;//weight of each placement, 0 if it is impossible
+    private final long[][] sizeWeights;//weight of each cell, indexed by size - MIN_SIZE and cell
+
+    /**
+     * Builds the map for the given board.
+     * @param board The board attacked by the AI
+     */
+    ProbabilityMap(AIBoard board) {
+        int gridSize = board.getGridSize();
+        this.cellCount = board.getCellCount();
+        int sizes = MAX_SIZE - MIN_SIZE + 1;
+        this.tables = new PlacementTable[sizes][2];
+        this.placementWeights = new long[sizes][2][];
+        this.sizeWeights = new long[sizes][this.cellCount];
+
+        long[] blockedCells = board.getBlockedCells();
+        long[] hitCells = board.getHitCells();
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+            this.tables[size - MIN_SIZE][FleetPlacer.HORIZONTAL] = PlacementTable.get(gridSize, size, Direction.WEST);
+            this.tables[size - MIN_SIZE][FleetPlacer.VERTICAL] = PlacementTable.get(gridSize, size, Direction.NORTH);
+            for (int axis = FleetPlacer.HORIZONTAL; axis <= FleetPlacer.VERTICAL; axis++) {
+                PlacementTable table = this.tables[size - MIN_SIZE][axis];
+                long[] weights = new long[table.getCount()];
+                for (int i = 0; i < table.getCount(); i++) {
+                    if (table.intersects(i, blockedCells))
+                        continue;
+                    weights[i] = 1;
+                    for (int hits = table.countCovered(i, hitCells); hits > 0; hits--) {
+                        weights[i] *= HIT_WEIGHT;
+                    }
+                    table.addWeight(i, weights[i], this.sizeWeights[size - MIN_SIZE]);
+                }
+                this.placementWeights[size - MIN_SIZE][axis] = weights;
+            }
+        }
+    }
+
+    /**
+     * Updates the map after the given cell has been attacked.
+     * @param cell Index of the attacked cell
+     * @param result Result of the attack
+     */
+    void onResult(int cell, MoveResult result) {
+        if (!result.isHit()) {
+            removePlacementsCovering(cell);
+            return;
+        }
+
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+            for (int axis = FleetPlacer.HORIZONTAL; axis <= FleetPlacer.VERTICAL; axis++) {
+                PlacementTable table = this.tables[size - MIN_SIZE][axis];
+                long[] weights = this.placementWeights[size - MIN_SIZE][axis];
+                for (int i = 0; i < table.getCoveringCount(cell); i++) {
+                    int placement = table.getCoveringPlacement(cell, i);
+                    if (weights[placement] == 0)
+                        continue;
+                    table.addWeight(placement, weights[placement] * (HIT_WEIGHT - 1), this.sizeWeights[size - MIN_SIZE]);
+                    weights[placement] *= HIT_WEIGHT;
+                }
+            }
+        }
+
+        if (result.isSunk()) {
+            for (GameCell shipCell : result.getShip().getShipsCells()) {
+                removePlacementsCovering(shipCell.getIndex());
+            }
+        }
+    }
+
+    private void removePlacementsCovering(int cell) {
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+            for (int axis = FleetPlacer.HORIZONTAL; axis <= FleetPlacer.VERTICAL; axis++) {
+                PlacementTable table = this.tables[size - MIN_SIZE][axis];
+                long[] weights = this.placementWeights[size - MIN_SIZE][axis];
+                for (int i = 0; i < table.getCoveringCount(cell); i++) {
+                    int placement = table.getCoveringPlacement(cell, i);
+                    if (weights[placement] == 0)
+                        continue;
+                    table.addWeight(placement, -weights[placement], this.sizeWeights[size - MIN_SIZE]);
+                    weights[placement] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the weight of every cell to the given array, taking into account the number of
+     * remaining ships of each size.
+     * @param board The board attacked by the AI
+     * @param cellWeights Array receiving the weight of each cell
+     */
+    void getWeights(AIBoard board, long[] cellWeights) {
+        long ships2 = board.getRemainingShips(2);
+        long ships3 = board.getRemainingShips(3);
+        long ships4 = board.getRemainingShips(4);
+        long ships5 = board.getRemainingShips(5);
+        for (int cell = 0; cell < this.cellCount; cell++) {
+            cellWeights[cell] = ships2 * this.sizeWeights[0][cell] + ships3 * this.sizeWeights[1][cell]
+                    + ships4 * this.sizeWeights[2][cell] + ships5 * this.sizeWeights[3][cell];
+        }
+    }
+}
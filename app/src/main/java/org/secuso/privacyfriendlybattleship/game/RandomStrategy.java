@@ -0,0 +1,51 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Random;
+
+/**
+ * This strategy attacks a random untried cell. It is used by the easy mode.
+ */
+
+final class RandomStrategy implements AIStrategy {
+
+    @Override
+    public void reset(AIBoard board) {
+    }
+
+    @Override
+    public int chooseTarget(AIBoard board, Random random) {
+        return board.getUntriedCells().pick(random);
+    }
+
+    @Override
+    public void onResult(AIBoard board, int cell, MoveResult result) {
+    }
+
+    @Override
+    public long getTimeBudget() {
+        return 0;
+    }
+
+    @Override
+    public void setTimeBudget(long millis) {
+    }
+}
@@ -0,0 +1,134 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.Random;
+
+/**
+ * This class contains the cells the hard AI attacks after it has hit a ship. These are the untried
+ * cells next to hit cells of ships which have not been sunk yet. Each cell is contained at most once.
+ * Once two hits of a ship are lying next to each other, cells continuing that line are preferred.
+ * Cells which are only next to ships that have been sunk are dropped.
+ */
+
+final class TargetQueue {
+
+    private final int gridSize;
+    private final CellPool untriedCells;
+    private final CellPool candidates;
+    private final long[] activeHits;//hit cells of ships which have not been sunk yet
+    private final int[] lineCandidates;
+
+    /**
+     * @param gridSize Size of the grid
+     * @param untriedCells Cells which have not been attacked yet, maintained by the AI
+     */
+    TargetQueue(int gridSize, CellPool untriedCells) {
+        int cellCount = gridSize * gridSize;
+        this.gridSize = gridSize;
+        this.untriedCells = untriedCells;
+        this.candidates = new CellPool(cellCount);
+        this.activeHits = BitBoard.create(cellCount);
+        this.lineCandidates = new int[cellCount];
+    }
+
+    boolean isEmpty() {
+        return this.candidates.isEmpty();
+    }
+
+    void onMiss(int cell) {
+        this.candidates.remove(cell);
+    }
+
+    /**
+     * Adds the untried neighbours of the given cell. The cell has to be removed from the untried
+     * cells before.
+     */
+    void onHit(int cell) {
+        this.candidates.remove(cell);
+        BitBoard.set(this.activeHits, cell);
+
+        int col = cell % this.gridSize;
+        int row = cell / this.gridSize;
+        addCandidate(col - 1, row);
+        addCandidate(col + 1, row);
+        addCandidate(col, row - 1);
+        addCandidate(col, row + 1);
+    }
+
+    /**
+     * Drops the cells which are not next to a hit cell of a ship that has not been sunk yet.
+     */
+    void onSunk(GameShip ship) {
+        for (GameCell cell : ship.getShipsCells()) {
+            BitBoard.clear(this.activeHits, cell.getIndex());
+        }
+        for (int i = this.candidates.size() - 1; i >= 0; i--) {
+            int cell = this.candidates.get(i);
+            int col = cell % this.gridSize;
+            int row = cell / this.gridSize;
+            if (!isActiveHit(col - 1, row) && !isActiveHit(col + 1, row)
+                    && !isActiveHit(col, row - 1) && !isActiveHit(col, row + 1)) {
+                this.candidates.remove(cell);
+            }
+        }
+    }
+
+    /**
+     * Returns a random cell of the queue. Cells continuing a line of two hits are preferred.
+     * @param random Random number generator
+     * @return Index of the cell
+     */
+    int pick(Random random) {
+        int count = 0;
+        for (int i = 0; i < this.candidates.size(); i++) {
+            int cell = this.candidates.get(i);
+            int col = cell % this.gridSize;
+            int row = cell / this.gridSize;
+            if (continuesLine(col, row, -1, 0) || continuesLine(col, row, 1, 0)
+                    || continuesLine(col, row, 0, -1) || continuesLine(col, row, 0, 1)) {
+                this.lineCandidates[count++] = cell;
+            }
+        }
+        if (count > 0) {
+            return this.lineCandidates[random.nextInt(count)];
+        }
+        return this.candidates.pick(random);
+    }
+
+    private void addCandidate(int col, int row) {
+        if (col < 0 || col >= this.gridSize || row < 0 || row >= this.gridSize)
+            return;
+        int cell = row * this.gridSize + col;
+        if (this.untriedCells.contains(cell)) {
+            this.candidates.add(cell);
+        }
+    }
+
+    private boolean continuesLine(int col, int row, int colStep, int rowStep) {
+        return isActiveHit(col + colStep, row + rowStep) && isActiveHit(col + 2 * colStep, row + 2 * rowStep);
+    }
+
+    private boolean isActiveHit(int col, int row) {
+        if (col < 0 || col >= this.gridSize || row < 0 || row >= this.gridSize)
+            return false;
+        return BitBoard.get(this.activeHits, row * this.gridSize + col);
+    }
+}
@@ -16,20 +16,18 @@
 package org.secuso.privacyfriendlybattleship.tutorial;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+
+import org.secuso.privacyfriendlybattleship.SettingsRepository;
 
 /**
  * Class structure taken from tutorial at http://www.androidhive.info/2016/05/android-build-intro-slider-app/
+ * The flags are kept in a SettingsRepository, which writes them in the background.
  * @author Karola Marky
  * @version 20170518
  */
 
 public class PrefManager {
-    private SharedPreferences pref;
-    private SharedPreferences.Editor editor;
-
-    // shared pref mode
-    private int PRIVATE_MODE = 0;
+    private SettingsRepository settings;
 
     // Shared preferences file name
     private static final String PREF_NAME = "pfa-pw-generator";
@@ -37,26 +35,23 @@ public class PrefManager {
     private static final String IS_TUTORIAL_LAUNCH = "IsTutorialLaunch";
 
     public PrefManager(Context context) {
-        pref = context.getSharedPreferences(PREF_NAME, PRIVATE_MODE);
-        editor = pref.edit();
+        settings = SettingsRepository.get(context, PREF_NAME);
     }
 
     public void setFirstTimeLaunch(boolean isFirstTime) {
-        editor.putBoolean(IS_FIRST_TIME_LAUNCH, isFirstTime);
-        editor.commit();
+        settings.putBoolean(IS_FIRST_TIME_LAUNCH, isFirstTime);
     }
 
     public boolean isFirstTimeLaunch() {
-        return pref.getBoolean(IS_FIRST_TIME_LAUNCH, true);
+        return settings.getBoolean(IS_FIRST_TIME_LAUNCH, true);
     }
 
     public void setTutorialLaunch(boolean isTutorial) {
-        editor.putBoolean(IS_TUTORIAL_LAUNCH, isTutorial);
-        editor.commit();
+        settings.putBoolean(IS_TUTORIAL_LAUNCH, isTutorial);
     }
 
     public boolean isTutorialLaunch() {
-        return pref.getBoolean(IS_TUTORIAL_LAUNCH, true);
+        return settings.getBoolean(IS_TUTORIAL_LAUNCH, true);
     }
 
 
@@ -21,11 +21,9 @@
 package org.secuso.privacyfriendlybattleship.ui;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
-import android.preference.PreferenceManager;
 import android.support.design.widget.NavigationView;
 import android.support.design.widget.NavigationView.OnNavigationItemSelectedListener;
 import android.support.v4.app.TaskStackBuilder;
@@ -38,6 +36,7 @@ import android.view.MenuItem;
 import android.view.View;
 
 import org.secuso.privacyfriendlybattleship.R;
+import org.secuso.privacyfriendlybattleship.SettingsRepository;
 import org.secuso.privacyfriendlybattleship.tutorial.TutorialActivity;
 
 import static org.secuso.privacyfriendlybattleship.tutorial.TutorialActivity.ACTION_SHOW_ANYWAYS;
@@ -60,14 +59,14 @@ public class BaseActivity extends AppCompatActivity implements OnNavigationItemS
 
     // Helper
     private Handler mHandler;
-    protected SharedPreferences mSharedPreferences;
+    protected SettingsRepository mSettings;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         //setContentView(R.layout.activity_main);
 
-        mSharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
+        mSettings = SettingsRepository.getDefault(this);
         mHandler = new Handler();
 
         //ActionBar ab = getSupportActionBar();
@@ -79,6 +78,13 @@ public class BaseActivity extends AppCompatActivity implements OnNavigationItemS
         overridePendingTransition(0, 0);
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Settings changed in this activity must not be lost if the app is killed in the background.
+        SettingsRepository.flushAll();
+    }
+
     @Override
     public void onBackPressed() {
         DrawerLayout drawer = (DrawerLayout) findViewById(R.id.drawer_layout);
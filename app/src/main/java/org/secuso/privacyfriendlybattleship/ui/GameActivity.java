@@ -46,14 +46,20 @@ import android.widget.TextView;
 
 import org.secuso.privacyfriendlybattleship.Constants;
 import org.secuso.privacyfriendlybattleship.R;
+import org.secuso.privacyfriendlybattleship.game.AIMoveExecutor;
+import org.secuso.privacyfriendlybattleship.game.FileStorage;
 import org.secuso.privacyfriendlybattleship.game.GameCell;
 import org.secuso.privacyfriendlybattleship.game.GameController;
 import org.secuso.privacyfriendlybattleship.game.GameGrid;
+import org.secuso.privacyfriendlybattleship.game.GameHistory;
+import org.secuso.privacyfriendlybattleship.game.GameJournal;
 import org.secuso.privacyfriendlybattleship.game.GameMode;
-import org.secuso.privacyfriendlybattleship.game.GameShip;
+import org.secuso.privacyfriendlybattleship.game.MoveResult;
+import org.secuso.privacyfriendlybattleship.game.PlacementHabits;
 
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Executor;
 
 /**
  * This activity enables a user to play the game depending on the game mode and size of the game
@@ -67,6 +73,8 @@ public class GameActivity extends BaseActivity {
 
     private Handler handler;
     private Timer timerUpdate;
+    private AIMoveExecutor aiExecutor;
+    private GameJournal journal;
 
     private TextView playerName;
     private TextView attempts;
@@ -83,8 +91,10 @@ public class GameActivity extends BaseActivity {
     private boolean hasStarted;
     private boolean moveMade;       // Necessary for the help and the back button in order to control the timer and the configuration changes
     private boolean isGameFinished;
+    private boolean isFleetPlaced;
     private boolean isShowAllShipsButtonClicked;
     private boolean isSwitchDialogDisplayed;
+    private boolean isAIMoveRunning;  // True while the AI is choosing its move in the background
     private GameCell attackedCell;
     private GameGrid gridUnderAttack;
     private int positionGridCell;   // Save the current position of the grid cell clicked
@@ -102,13 +112,42 @@ public class GameActivity extends BaseActivity {
 
         // Get the parameters from the MainActivity or the PlaceShipActivity and initialize the game
         Intent intentIn = getIntent();
-        this.controller = intentIn.getParcelableExtra("controller");
+        if(savedInstanceState != null){
+            // The game has gone on since the activity has been started
+            this.controller = savedInstanceState.getParcelable("controller");
+        }
+        else{
+            this.controller = intentIn.getParcelableExtra("controller");
+        }
         this.gridSize = controller.getGridSize();
         this.gameMode = controller.getMode();
+        // Only fleets placed by the players tell the AI something about their habits
+        this.isFleetPlaced = intentIn.getBooleanExtra("fleet placed", false);
+        FileStorage.setDirectory(getFilesDir());
+
+        // Write every move to the journal, such that the game can be resumed after the app has been closed.
+        boolean isResumed = intentIn.getBooleanExtra("resumed", false);
+        if(savedInstanceState != null || isResumed){
+            this.journal = GameJournal.open(getFilesDir(), this.controller);
+        }
+        else{
+            this.journal = GameJournal.create(getFilesDir(), this.controller);
+        }
+        this.controller.setJournal(this.journal);
 
         // Set up the handler, which will be needed later in the code.
         this.handler = new Handler();
 
+        // Let the AI choose its moves in the background and deliver them to the UI thread.
+        if(this.gameMode.isVsAI()){
+            this.aiExecutor = new AIMoveExecutor(this.controller, new Executor() {
+                @Override
+                public void execute(Runnable runnable) {
+                    handler.post(runnable);
+                }
+            });
+        }
+
         // Create a GameActivityLayoutProvider in order to scale the grids appropriately
         layoutProvider = new GameActivityLayoutProvider(this, this.gridSize);
 
@@ -118,6 +157,11 @@ public class GameActivity extends BaseActivity {
             this.hasStarted = savedInstanceState.getBoolean("has started");
             this.isGameFinished = savedInstanceState.getBoolean("game finished");
             this.isSwitchDialogDisplayed = savedInstanceState.getBoolean("switch dialog shown");
+            this.isAIMoveRunning = savedInstanceState.getBoolean("ai move running");
+        }
+        else if(isResumed && this.gameMode.isVsAI() && this.controller.getCurrentPlayer()){
+            // The game has been interrupted before the AI has answered the last move of the player
+            this.isAIMoveRunning = true;
         }
 
         if(this.isGameFinished){
@@ -218,12 +262,12 @@ public class GameActivity extends BaseActivity {
     }
 
     private boolean isFirstActivityStart() {
-        return mSharedPreferences.getBoolean(Constants.FIRST_GAME_START, true);
+        return mSettings.getBoolean(Constants.FIRST_GAME_START, true);
 
     }
 
     private void setActivityStarted(){
-        mSharedPreferences.edit().putBoolean(Constants.FIRST_GAME_START, false).commit();
+        mSettings.putBoolean(Constants.FIRST_GAME_START, false);
     }
 
     /**
@@ -263,6 +307,7 @@ public class GameActivity extends BaseActivity {
         } else {
             // Display a dialog which asks the current player, if he wants to quit the game
             this.controller.stopTimer();
+            cancelAIMove();
             GoBackDialog goBackDialog = new GoBackDialog();
             goBackDialog.setCancelable(false);
             goBackDialog.show(getFragmentManager(), GoBackDialog.class.getSimpleName());
@@ -277,19 +322,36 @@ public class GameActivity extends BaseActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        if(this.hasStarted || this.gameMode == GameMode.VS_AI_EASY || this.gameMode == GameMode.VS_AI_HARD){
+        if(this.hasStarted || this.gameMode.isVsAI()){
             this.controller.startTimer();
-            if(this.moveMade || this.isSwitchDialogDisplayed || this.isGameFinished ||
+            if(this.moveMade || this.isSwitchDialogDisplayed || this.isGameFinished || this.isAIMoveRunning ||
                     (this.controller.getMode() != GameMode.VS_PLAYER && this.controller.getOpponentAI().isAIWinner()) ){
                 this.controller.stopTimer();
             }
         }
+        resumeAIMove();
     }
 
     @Override
     protected void onPause() {
         super.onPause();
         this.controller.stopTimer();
+        cancelAIMove();
+        if(this.journal != null){
+            this.journal.sync();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // The view of the timer is no longer updated.
+        this.timerUpdate.cancel();
+        if(this.journal != null){
+            this.controller.setJournal(null);
+            this.journal.close();
+            this.journal = null;
+        }
     }
 
     /*
@@ -306,6 +368,7 @@ public class GameActivity extends BaseActivity {
         savedInstanceState.putBoolean("has started", this.hasStarted);
         savedInstanceState.putBoolean("game finished", this.isGameFinished);
         savedInstanceState.putBoolean("switch dialog shown", this.isSwitchDialogDisplayed);
+        savedInstanceState.putBoolean("ai move running", this.isAIMoveRunning);
         super.onSaveInstanceState(savedInstanceState);
     }
 
@@ -375,27 +438,26 @@ public class GameActivity extends BaseActivity {
         this.attackedCell = gridUnderAttack.getCell(column, row);
 
         //Do not attack the same cell twice and do not click the fire button without clicking on a cell.
-        if(attackedCell.isHit() || this.prevCell == null || !isCellClicked){
+        if(this.isAIMoveRunning || attackedCell.isHit() || this.prevCell == null || !isCellClicked){
             return;
         }
 
         // Attack the cell and update the main grid.
-        this.controller.makeMove(this.controller.getCurrentPlayer(), column, row);
+        MoveResult result = this.controller.makeMove(this.controller.getCurrentPlayer(), column, row);
         this.moveMade = true;
         // Denote that the cells are not clicked anymore such that fire button can only be executed if a cell has been clicked
         this.isCellClicked = false;
         updateToolbar();
         adapterMainGrid.notifyDataSetChanged();
 
-        final GameShip ship = this.gridUnderAttack.getShipSet().findShipContainingCell(attackedCell);
         this.controller.stopTimer();
         // Check if the current hit has destroyed a ship
-        if(ship != null && ship.isDestroyed()){
+        if(result.isSunk()){
 
             int playerName = controller.getCurrentPlayer() ?  R.string.game_player_two : R.string.game_player_one;
             Bundle bundle = new Bundle();
             bundle.putInt("Name", playerName);
-            bundle.putInt("Size", ship.getSize());
+            bundle.putInt("Size", result.getSunkShipSize());
             /*
             Show a dialog. The dialog will check if the current player has won after the player
             has clicked on the OK button, cf. the respective onCreateDialog method.
@@ -414,37 +476,11 @@ public class GameActivity extends BaseActivity {
     // Switch the player or make the move for the AI
     private void terminateFireButton(){
         // If the attacked cell does not contain a ship, then stop the timer and switch the player
-        if(this.gameMode == GameMode.VS_AI_EASY || this.gameMode == GameMode.VS_AI_HARD){
+        if(this.gameMode.isVsAI()){
 
             controller.switchPlayers();
             //make move for AI
-            controller.getOpponentAI().makeMove();
-            this.handler.postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    adapterMiniGrid.notifyDataSetChanged();
-                    if(controller.getOpponentAI().isAIWinner()){
-                        timerUpdate.cancel();
-
-                        /*
-                        Create a dialog. Therefore, instantiate a bundle which transfers the data from the
-                        current game to the dialog.
-                        */
-                        Bundle bundle = new Bundle();
-                        bundle.putString("Time", controller.timeToString(controller.getTime()));
-                        bundle.putString("Attempts", controller.attemptsToString(controller.getAttemptsPlayerOne()));
-
-                        // Instantiate the lose dialog and show it
-                        LoseDialog loseDialog = LoseDialog.newInstance(bundle);
-                        loseDialog.setCancelable(false);
-                        loseDialog.show(getFragmentManager(), LoseDialog.class.getSimpleName());
-                    }
-                    else {
-                        // Restart the timer for player one
-                        controller.startTimer();
-                    }
-                }
-            }, 250);
+            requestAIMove();
             this.moveMade = false;
         }
         else{
@@ -464,6 +500,69 @@ public class GameActivity extends BaseActivity {
         }
     }
 
+    private void requestAIMove(){
+        this.isAIMoveRunning = true;
+        this.aiExecutor.requestMove(new AIMoveExecutor.Callback() {
+            @Override
+            public void onMoveChosen(int cell) {
+                isAIMoveRunning = false;
+                controller.getOpponentAI().makeMove(cell);
+                if(!controller.getOpponentAI().isAIWinner()){
+                    // Think about the next move while the player is thinking about his move
+                    aiExecutor.prefetch();
+                }
+                handler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        adapterMiniGrid.notifyDataSetChanged();
+                        if(controller.getOpponentAI().isAIWinner()){
+                            timerUpdate.cancel();
+                            recordPlacementHabits();
+
+                            /*
+                            Create a dialog. Therefore, instantiate a bundle which transfers the data from the
+                            current game to the dialog.
+                            */
+                            Bundle bundle = new Bundle();
+                            bundle.putString("Time", controller.timeToString(controller.getTime()));
+                            bundle.putString("Attempts", controller.attemptsToString(controller.getAttemptsPlayerOne()));
+
+                            // The lose dialog is shown once the game has been recorded
+                            recordGame(bundle, false);
+                            deleteJournal();
+                        }
+                        else {
+                            // Restart the timer for player one
+                            controller.startTimer();
+                        }
+                    }
+                }, 250);
+            }
+        });
+    }
+
+    /*
+    Continue the move of the AI if it has been interrupted, otherwise start thinking about the next
+    move of the AI during the turn of the player.
+     */
+    private void resumeAIMove(){
+        if(this.aiExecutor == null || this.isGameFinished || this.controller.getOpponentAI().isAIWinner()){
+            return;
+        }
+        if(this.isAIMoveRunning){
+            requestAIMove();
+        }
+        else{
+            this.aiExecutor.prefetch();
+        }
+    }
+
+    private void cancelAIMove(){
+        if(this.aiExecutor != null){
+            this.aiExecutor.cancel();
+        }
+    }
+
     public void onClickFinishButton(View view){
         Button finishButton = (Button) findViewById(R.id.game_button_fire);
         finishButton.setText(R.string.finish);
@@ -609,6 +708,7 @@ public class GameActivity extends BaseActivity {
         //check if player has won
         if (this.controller.gridUnderAttack().getShipSet().allShipsDestroyed() ){
             timerUpdate.cancel();
+            recordPlacementHabits();
             gridViewBig.setEnabled(false);
             /*
             Create a dialog. Therefore, instantiate a bundle which transfers the data from the
@@ -622,16 +722,72 @@ public class GameActivity extends BaseActivity {
             bundle.putString("Time", this.controller.timeToString(this.controller.getTime()));
             bundle.putString("Attempts", this.controller.attemptsToString(attemptsWinner));
 
-            // Instantiate the win dialog and show it
-            WinDialog winDialog = WinDialog.newInstance(bundle);
-            winDialog.setCancelable(false);
-            winDialog.show(getFragmentManager(), WinDialog.class.getSimpleName());
+            // The win dialog is shown once the game has been recorded
+            recordGame(bundle, true);
+            deleteJournal();
         }
         else {
             terminateFireButton();
         }
     }
 
+    /*
+    Add the finished game to the history and show the win or lose dialog afterwards. In the modes
+    against the AI the dialog also shows the statistics of the player in the game mode.
+     */
+    private void recordGame(final Bundle bundle, final boolean isWon){
+        GameHistory.record(getFilesDir(), this.controller, new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                handler.post(runnable);
+            }
+        }, new GameHistory.StatisticsCallback() {
+            @Override
+            public void onStatistics(GameHistory.Statistics statistics) {
+                if(isFinishing()){
+                    return;
+                }
+                if(gameMode.isVsAI()){
+                    bundle.putString("Statistics", statisticsToString(statistics));
+                }
+                DialogFragment dialog = isWon ? WinDialog.newInstance(bundle) : LoseDialog.newInstance(bundle);
+                dialog.setCancelable(false);
+                dialog.show(getFragmentManager(), dialog.getClass().getSimpleName());
+            }
+        });
+    }
+
+    private String statisticsToString(GameHistory.Statistics statistics){
+        String wins = getString(R.string.game_dialog_wins, statistics.getWins(), statistics.getGames());
+        if(statistics.getBestTime() < 0){
+            return wins;
+        }
+        // The time of the history is given in milliseconds
+        return wins + "\n" + getString(R.string.game_dialog_best_time,
+                this.controller.timeToString(statistics.getBestTime() / 1000));
+    }
+
+    private void recordPlacementHabits(){
+        if(!this.isFleetPlaced){
+            return;
+        }
+        // Learn where the players like to place their ships, such that the AI can look there first.
+        PlacementHabits.recordFleet(this.controller.getGridFirstPlayer());
+        if(this.gameMode == GameMode.VS_PLAYER){
+            PlacementHabits.recordFleet(this.controller.getGridSecondPlayer());
+        }
+    }
+
+    // A finished game cannot be resumed.
+    private void deleteJournal(){
+        if(this.journal != null){
+            this.controller.setJournal(null);
+            this.journal.close();
+            this.journal = null;
+        }
+        GameJournal.delete(getFilesDir());
+    }
+
     public void setUpTimer(){
         // Setup timer task and timer view. This setup updates the current time of a player every second.
         final TextView timerView = (TextView) findViewById(R.id.timerView);
@@ -765,6 +921,10 @@ public class GameActivity extends BaseActivity {
 
             // Build the dialog
             AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+            String statistics = getArguments().getString("Statistics");
+            if(statistics != null){
+                builder.setMessage(statistics);
+            }
             builder.setView(loseDialogView)
                     .setTitle(R.string.game_dialog_loss)
                     .setIcon(R.mipmap.icon_drawer)
@@ -821,6 +981,10 @@ public class GameActivity extends BaseActivity {
 
             // Build the dialog
             AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+            String statistics = getArguments().getString("Statistics");
+            if(statistics != null){
+                builder.setMessage(statistics);
+            }
             builder.setTitle(R.string.game_dialog_win)
                     .setIcon(R.mipmap.icon_drawer)
                     .setView(winDialogView)
@@ -863,10 +1027,11 @@ public class GameActivity extends BaseActivity {
 
                         @Override
                         public void onClick(DialogInterface dialogInterface, int i) {
-                            if( !((GameActivity) getActivity()).moveMade ){
+                            if( !((GameActivity) getActivity()).moveMade && !((GameActivity) getActivity()).isAIMoveRunning ){
                                 // Resume the timer
                                 ((GameActivity) getActivity()).controller.startTimer();
                             }
+                            ((GameActivity) getActivity()).resumeAIMove();
                         }
                     });
 
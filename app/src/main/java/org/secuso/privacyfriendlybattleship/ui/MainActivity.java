@@ -36,8 +36,11 @@ import org.secuso.privacyfriendlybattleship.Constants;
 import org.secuso.privacyfriendlybattleship.R;
 import org.secuso.privacyfriendlybattleship.game.GameController;
 import org.secuso.privacyfriendlybattleship.game.GameGrid;
+import org.secuso.privacyfriendlybattleship.game.GameJournal;
 import org.secuso.privacyfriendlybattleship.game.GameMode;
 
+import java.util.concurrent.Executor;
+
 /**
  * This activity implements the main menu of the app. Here the player can
  * choose a game mode, the grid size and if he wants to set the number of
@@ -61,12 +64,20 @@ public class MainActivity extends BaseActivity {
         setupViewPagerSize();
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Offer to resume the last game if it has not been finished
+        View resumeButton = findViewById(R.id.resume_game_button);
+        resumeButton.setVisibility(GameJournal.exists(getFilesDir()) ? View.VISIBLE : View.GONE);
+    }
+
     private boolean isFirstAppStart() {
-        return mSharedPreferences.getBoolean(Constants.FIRST_APP_START, true);
+        return mSettings.getBoolean(Constants.FIRST_APP_START, true);
     }
 
     private void setAppStarted() {
-        mSharedPreferences.edit().putBoolean(Constants.FIRST_APP_START, false).commit();
+        mSettings.putBoolean(Constants.FIRST_APP_START, false);
     }
 
     @Override
@@ -90,8 +101,8 @@ public class MainActivity extends BaseActivity {
 
         @Override
         public int getCount() {
-            // Show 3 total pages.
-            return 3;
+            // Show a page for each game mode.
+            return GameMode.getValidTypes().size();
         }
     }
 
@@ -207,7 +218,7 @@ public class MainActivity extends BaseActivity {
             @Override
             public void onPageSelected(int position) {
                 arrowLeft.setVisibility(position == 0 ? View.INVISIBLE : View.VISIBLE);
-                arrowRight.setVisibility(position == 2 ? View.INVISIBLE : View.VISIBLE);
+                arrowRight.setVisibility(position == GameMode.getValidTypes().size() - 1 ? View.INVISIBLE : View.VISIBLE);
             }
             @Override
             public void onPageScrollStateChanged(int state) {
@@ -268,6 +279,36 @@ public class MainActivity extends BaseActivity {
             case R.id.size_arrow_right:
                 viewPagerSize.arrowScroll(View.FOCUS_RIGHT);
                 break;
+            case R.id.resume_game_button:
+                // Read the journal in the background and start the game once it has been restored
+                final View resumeButton = view;
+                resumeButton.setEnabled(false);
+                GameJournal.resume(getFilesDir(), new Executor() {
+                    @Override
+                    public void execute(Runnable runnable) {
+                        runOnUiThread(runnable);
+                    }
+                }, new GameJournal.ResumeCallback() {
+                    @Override
+                    public void onResumed(GameController game) {
+                        resumeButton.setEnabled(true);
+                        if(isFinishing()){
+                            return;
+                        }
+                        if(game == null){
+                            // The journal is damaged, so the game cannot be resumed.
+                            resumeButton.setVisibility(View.GONE);
+                            return;
+                        }
+
+                        // send the resumed game to GameActivity
+                        Intent intent = new Intent(MainActivity.this, GameActivity.class);
+                        intent.putExtra("controller", game);
+                        intent.putExtra("resumed", true);
+                        startActivity(intent);
+                    }
+                });
+                break;
             case R.id.quick_start_button:
                 // Get the selected game mode and the grid size
                 modeIndex = viewPagerMode.getCurrentItem();
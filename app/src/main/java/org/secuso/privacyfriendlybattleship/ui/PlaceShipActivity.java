@@ -26,11 +26,9 @@ import android.app.Dialog;
 import android.app.DialogFragment;
 import android.content.DialogInterface;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.res.Configuration;
 import android.graphics.Color;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -47,8 +45,12 @@ import org.secuso.privacyfriendlybattleship.R;
 import org.secuso.privacyfriendlybattleship.game.Direction;
 import org.secuso.privacyfriendlybattleship.game.GameCell;
 import org.secuso.privacyfriendlybattleship.game.GameController;
+import org.secuso.privacyfriendlybattleship.game.GameGrid;
 import org.secuso.privacyfriendlybattleship.game.GameMode;
 import org.secuso.privacyfriendlybattleship.game.GameShip;
+import org.secuso.privacyfriendlybattleship.game.GameShipSet;
+
+import java.util.List;
 
 /**
  * This class is used to implement the activity for the placement of
@@ -62,18 +64,18 @@ import org.secuso.privacyfriendlybattleship.game.GameShip;
 
 public class PlaceShipActivity extends BaseActivity {
 
-    private SharedPreferences preferences = null;
     private GameController controller;
     private int gridSize;
     private GameActivityLayoutProvider layoutProvider;
     private GridView gridView;
     private GameGridAdapter gridAdapter;
     private GameShip selectedShip;
+    // Indices of the cells of the selected ship before a move, reused for every move
+    private final int[] previousCells = new int[5];
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setupPreferences();
         setContentView(R.layout.activity_place_ship);
 
         // Get the parameters from the MainActivity or the PlaceShipActivity and initialize the game
@@ -97,7 +99,7 @@ public class PlaceShipActivity extends BaseActivity {
     }
 
     private boolean isFirstActivityStart() {
-        return preferences.getBoolean(Constants.FIRST_PLACEMENT_START, true);
+        return mSettings.getBoolean(Constants.FIRST_PLACEMENT_START, true);
     }
 
     private void showTutorialDialog() {
@@ -105,7 +107,7 @@ public class PlaceShipActivity extends BaseActivity {
     }
 
     private void setActivityStarted() {
-        preferences.edit().putBoolean(Constants.FIRST_PLACEMENT_START, false).commit();
+        mSettings.putBoolean(Constants.FIRST_PLACEMENT_START, false);
     }
 
     private void showInvalidPlacementDialog() {
@@ -165,7 +167,6 @@ public class PlaceShipActivity extends BaseActivity {
                 int column = i % gridSize;
                 int row = i / gridSize;
 
-                GameCell[] shipsCells;
                 if(selectedShip != null) {
                     //mark ships cells not highlighted
                     unhighlightCells(selectedShip.getShipsCells());
@@ -186,39 +187,47 @@ public class PlaceShipActivity extends BaseActivity {
 
     private void highlightCells(GameCell[] cells) {
         for( GameCell cell : cells ) {
-            int col = cell.getCol();
-            int row = cell.getRow();
-            ImageView cellView = (ImageView) this.gridView.getChildAt( row * this.gridSize + col );
-            cellView.setImageResource(cell.getResourceId());
-            cellView.setImageAlpha(128);
+            highlightCell(cell);
+        }
+    }
 
-            int shipsOnCell = this.controller.getCurrentGrid().getShipSet().shipsOnCell(cell);
-            if (shipsOnCell == 1){
-                cellView.setBackgroundColor(gridAdapter.context.getResources().getColor(R.color.yellow));
-            } else {
-                cellView.setBackgroundColor(gridAdapter.context.getResources().getColor(R.color.red));
-            }
+    private void highlightCell(GameCell cell) {
+        int col = cell.getCol();
+        int row = cell.getRow();
+        ImageView cellView = (ImageView) this.gridView.getChildAt( row * this.gridSize + col );
+        cellView.setImageResource(cell.getResourceId());
+        cellView.setImageAlpha(128);
+
+        int shipsOnCell = this.controller.getCurrentGrid().getShipSet().shipsOnCell(cell);
+        if (shipsOnCell == 1){
+            cellView.setBackgroundColor(gridAdapter.context.getResources().getColor(R.color.yellow));
+        } else {
+            cellView.setBackgroundColor(gridAdapter.context.getResources().getColor(R.color.red));
         }
     }
 
     private void unhighlightCells(GameCell[] cells) {
         for( GameCell cell : cells ) {
-            int col = cell.getCol();
-            int row = cell.getRow();
-            int shipsOnCell = this.controller.getCurrentGrid().getShipSet().shipsOnCell(cell);
-            ImageView cellView = (ImageView) this.gridView.getChildAt( row * this.gridSize + col );
-            if (shipsOnCell == 0) {
-                cellView.setBackgroundColor(Color.WHITE);
-                cellView.setImageResource(0);
-            } else if (shipsOnCell == 1) {
-                cellView.setBackgroundColor(Color.WHITE);
-                cellView.setImageResource(cell.getResourceId());
-                cellView.setImageAlpha(255);
-            } else if (shipsOnCell >= 2) {
-                cellView.setBackgroundColor(gridAdapter.context.getResources().getColor(R.color.red));
-                cellView.setImageResource(cell.getResourceId());
-                cellView.setImageAlpha(255);
-            }
+            unhighlightCell(cell);
+        }
+    }
+
+    private void unhighlightCell(GameCell cell) {
+        int col = cell.getCol();
+        int row = cell.getRow();
+        int shipsOnCell = this.controller.getCurrentGrid().getShipSet().shipsOnCell(cell);
+        ImageView cellView = (ImageView) this.gridView.getChildAt( row * this.gridSize + col );
+        if (shipsOnCell == 0) {
+            cellView.setBackgroundColor(Color.WHITE);
+            cellView.setImageResource(0);
+        } else if (shipsOnCell == 1) {
+            cellView.setBackgroundColor(Color.WHITE);
+            cellView.setImageResource(cell.getResourceId());
+            cellView.setImageAlpha(255);
+        } else if (shipsOnCell >= 2) {
+            cellView.setBackgroundColor(gridAdapter.context.getResources().getColor(R.color.red));
+            cellView.setImageResource(cell.getResourceId());
+            cellView.setImageAlpha(255);
         }
     }
 
@@ -226,7 +235,14 @@ public class PlaceShipActivity extends BaseActivity {
         if ( this.selectedShip == null )
             return;
 
-        GameCell[] oldCells = this.selectedShip.getShipsCells();
+        // Remember the old position of the ship, the ship reuses its array of cells when it moves
+        GameGrid grid = this.controller.getCurrentGrid();
+        GameCell[] shipsCells = this.selectedShip.getShipsCells();
+        int shipSize = this.selectedShip.getSize();
+        for (int i = 0; i < shipSize; i++) {
+            this.previousCells[i] = shipsCells[i].getIndex();
+        }
+
         switch (view.getId()) {
             case R.id.arrow_right:
                 this.selectedShip.moveShip(Direction.EAST);
@@ -247,22 +263,27 @@ public class PlaceShipActivity extends BaseActivity {
                 this.selectedShip.turnShipLeft();
                 break;
         }
-        unhighlightCells(oldCells);
+        for (int i = 0; i < shipSize; i++) {
+            unhighlightCell(grid.getCell(this.previousCells[i]));
+        }
         highlightCells(this.selectedShip.getShipsCells());
     }
 
     public void onClickReady(View view) {
-        if (!this.controller.getCurrentGrid().getShipSet().placementLegit()) {
+        List<GameCell> conflicts = this.controller.getCurrentGrid().getShipSet()
+                .findPlacementConflicts(GameShipSet.KEEP_DISTANCE);
+        if (!conflicts.isEmpty()) {
+            markConflicts(conflicts);
             showInvalidPlacementDialog();
             return;
         }
 
-        if (    this.controller.getMode() == GameMode.VS_AI_EASY ||
-                this.controller.getMode() == GameMode.VS_AI_HARD) {
+        if (this.controller.getMode().isVsAI()) {
 
             //Call GameActivity and provide GameController
             Intent intent = new Intent(this, GameActivity.class);
             intent.putExtra("controller", this.controller);
+            intent.putExtra("fleet placed", true);
             startActivity(intent);
         } else if (this.controller.getMode() == GameMode.VS_PLAYER) {
             if (this.controller.getCurrentPlayer()) {
@@ -273,6 +294,7 @@ public class PlaceShipActivity extends BaseActivity {
                 //Call GameActivity and provide GameController
                 Intent intent = new Intent(this, GameActivity.class);
                 intent.putExtra("controller", this.controller);
+                intent.putExtra("fleet placed", true);
                 startActivity(intent);
 
                 // Finish the PlaceShipActivity
@@ -285,6 +307,13 @@ public class PlaceShipActivity extends BaseActivity {
 
     }
 
+    private void markConflicts(List<GameCell> conflicts) {
+        for (GameCell cell : conflicts) {
+            View cellView = this.gridView.getChildAt( cell.getRow() * this.gridSize + cell.getCol() );
+            cellView.setBackgroundColor(gridAdapter.context.getResources().getColor(R.color.red));
+        }
+    }
+
     private void fadeOutGridView() {
         Animation fadeOut = new AlphaAnimation(1, 0);
         fadeOut.setInterpolator(new AccelerateInterpolator());
@@ -306,10 +335,6 @@ public class PlaceShipActivity extends BaseActivity {
         setupGridView(this.controller.getGridSize());
     }
 
-    private void setupPreferences() {
-        preferences = PreferenceManager.getDefaultSharedPreferences(this);
-    }
-
     public static class TutorialDialog extends DialogFragment {
 
         @Override
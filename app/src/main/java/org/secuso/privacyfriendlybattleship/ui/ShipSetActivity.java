@@ -116,7 +116,7 @@ public class ShipSetActivity extends BaseActivity {
     }
 
     private boolean isFirstActivityStart() {
-        return mSharedPreferences.getBoolean(Constants.FIRST_SHIP_SET_START, true);
+        return mSettings.getBoolean(Constants.FIRST_SHIP_SET_START, true);
     }
 
     private void showTutorialDialog() {
@@ -124,7 +124,7 @@ public class ShipSetActivity extends BaseActivity {
     }
 
     private void setActivityStarted() {
-        mSharedPreferences.edit().putBoolean(Constants.FIRST_SHIP_SET_START, false).commit();
+        mSettings.putBoolean(Constants.FIRST_SHIP_SET_START, false);
     }
 
     public void addShipOfSize2(View view){
@@ -134,15 +134,15 @@ public class GameControllerTest {
         assertEquals(controller.getGridFirstPlayer().getCell(0, 0).isHit(), false);
         */
 
-        assertEquals(controllerSmall.makeMove(false, 1, 1), true);
-        assertEquals(controllerSmall.makeMove(false, 2, 2), false);
+        assertEquals(controllerSmall.makeMove(false, 1, 1).isHit(), true);
+        assertEquals(controllerSmall.makeMove(false, 2, 2).isHit(), false);
         controllerSmall.switchPlayers();
-        assertEquals(controllerSmall.makeMove(true, 3, 3), true);
-        assertEquals(controllerSmall.makeMove(true, 2, 3), true);
-        assertEquals(controllerSmall.makeMove(true, 4, 3), false);
+        assertEquals(controllerSmall.makeMove(true, 3, 3).isHit(), true);
+        assertEquals(controllerSmall.makeMove(true, 2, 3).isHit(), true);
+        assertEquals(controllerSmall.makeMove(true, 4, 3).isHit(), false);
         controllerSmall.switchPlayers();
-        assertEquals(controllerSmall.makeMove(false, 1, 2), true);
-        assertEquals(controllerSmall.makeMove(false, 1, 3), true);
+        assertEquals(controllerSmall.makeMove(false, 1, 2).isHit(), true);
+        assertEquals(controllerSmall.makeMove(false, 1, 3).isHit(), true);
         System.out.println("Attempts player one: " + controllerSmall.getAttemptsPlayerOne());
         System.out.println("Attempts AI: " + controllerSmall.getAttemptsPlayerTwo());
         assertEquals(controllerSmall.getAttemptsPlayerOne(), 4);
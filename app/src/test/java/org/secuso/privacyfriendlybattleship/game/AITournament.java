@@ -0,0 +1,300 @@
+/*
+    Copyright 2017 Alexander Müller, Ali Kalsen
+
+    This file is part of Privacy Friendly Battleships.
+
+    Privacy Friendly Battleships is free software: you can redistribute
+    it and/or modify it under the terms of the GNU General Public License
+    as published by the Free Software Foundation, either version 3 of the
+    License, or (at your option) any later version.
+
+    Privacy Friendly Battleships is distributed in the hope that it will
+    be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+    of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+    General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Foobar.  If not, see http://www.gnu.org/licenses/.
+ */
+
+package org.secuso.privacyfriendlybattleship.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class lets the AI play against randomly placed fleets without any UI, in order to tune the
+ * difficulty levels and to detect performance regressions of GameAI and GameShipSet. The games are
+ * played in parallel on all cores. For each game mode, grid size and fleet the tournament reports
+ * the number of shots the AI needs to win, the time needed per move and the time needed to place
+ * the fleet. Game i of a tournament uses the seed seed + i, so results are reproducible, except for
+ * the expert mode, whose moves depend on the time budget.
+ *
+ * The tournament is part of the unit test sources, so it is not shipped with the app. It runs on the
+ * JVM with the compiled classes of the app, the compiled unit tests and android.jar on the class
+ * path, e.g.
+ *
+ *   java -cp classes:test-classes:android.jar org.secuso.privacyfriendlybattleship.game.AITournament
+ *        games=100000 modes=VS_AI_EASY,VS_AI_HARD fleets=10:1,2,1,1;12:2,2,2,1
+ *
+ * Arguments (all optional): games per configuration, threads, seed, budget (time budget of the
+ * AI in milliseconds, the default of the strategy if omitted), modes and fleets (gridSize:ships of
+ * size 2,3,4,5 separated by ';').
+ * The expert mode samples on all cores itself, so it should be run with threads=1.
+ */
+
+public final class AITournament {
+
+    private static final int GAMES_PER_TASK = 256;
+
+    private final GameMode mode;
+    private final int gridSize;
+    private final int[] shipCount;
+    private final long budget;
+
+    private AITournament(GameMode mode, int gridSize, int[] shipCount, long budget) {
+        this.mode = mode;
+        this.gridSize = gridSize;
+        this.shipCount = shipCount;
+        this.budget = budget;
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int games = 10000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+        long budget = -1;
+        String modes = "VS_AI_EASY,VS_AI_HARD,VS_AI_EXPERT";
+        String fleets = "5:2,1,0,0;10:1,2,1,1";
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Arguments have to be given as key=value: " + arg);
+            }
+            if (option[0].equals("games")) {
+                games = Integer.parseInt(option[1]);
+            } else if (option[0].equals("threads")) {
+                threads = Integer.parseInt(option[1]);
+            } else if (option[0].equals("seed")) {
+                seed = Long.parseLong(option[1]);
+            } else if (option[0].equals("budget")) {
+                budget = Long.parseLong(option[1]);
+            } else if (option[0].equals("modes")) {
+                modes = option[1];
+            } else if (option[0].equals("fleets")) {
+                fleets = option[1];
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + option[0]);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (String modeName : modes.split(",")) {
+                GameMode mode = GameMode.valueOf(modeName.trim());
+                if (!mode.isVsAI()) {
+                    throw new IllegalArgumentException("Not an AI mode: " + mode);
+                }
+                for (String fleet : fleets.split(";")) {
+                    String[] sizeAndShips = fleet.split(":");
+                    String[] ships = sizeAndShips[1].split(",");
+                    int[] shipCount = new int[4];
+                    for (int i = 0; i < shipCount.length; i++) {
+                        shipCount[i] = Integer.parseInt(ships[i].trim());
+                    }
+                    AITournament tournament = new AITournament(mode,
+                            Integer.parseInt(sizeAndShips[0].trim()), shipCount, budget);
+                    System.out.println(tournament.run(executor, games, seed));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private String run(ExecutorService executor, int games, final long seed)
+            throws InterruptedException, ExecutionException {
+        List<Future<Statistics>> results = new ArrayList<>();
+        for (int first = 0; first < games; first += GAMES_PER_TASK) {
+            final int from = first;
+            final int to = Math.min(first + GAMES_PER_TASK, games);
+            results.add(executor.submit(new Callable<Statistics>() {
+                @Override
+                public Statistics call() {
+                    Statistics statistics = new Statistics(gridSize * gridSize);
+                    for (int i = from; i < to; i++) {
+                        play(seed + i, statistics);
+                    }
+                    return statistics;
+                }
+            }));
+        }
+
+        Statistics total = new Statistics(this.gridSize * this.gridSize);
+        for (Future<Statistics> result : results) {
+            total.add(result.get());
+        }
+        return String.format(Locale.US,
+                "%s %dx%d fleet %d,%d,%d,%d: %d games, shots mean %.2f median %d max %d, "
+                        + "move p50 %s p90 %s p99 %s max %s, placement p50 %s p99 %s max %s",
+                this.mode, this.gridSize, this.gridSize, this.shipCount[0], this.shipCount[1],
+                this.shipCount[2], this.shipCount[3], total.games, total.getMeanShots(),
+                total.getShotsPercentile(0.5), total.getShotsPercentile(1.0),
+                formatNanos(total.moveTimes.getPercentile(0.5)), formatNanos(total.moveTimes.getPercentile(0.9)),
+                formatNanos(total.moveTimes.getPercentile(0.99)), formatNanos(total.moveTimes.getPercentile(1.0)),
+                formatNanos(total.placementTimes.getPercentile(0.5)),
+                formatNanos(total.placementTimes.getPercentile(0.99)),
+                formatNanos(total.placementTimes.getPercentile(1.0)));
+    }
+
+    private void play(long seed, Statistics statistics) {
+        GameController controller = new GameController(this.mode, this.gridSize, this.shipCount, seed);
+        long start = System.nanoTime();
+        controller.getGridFirstPlayer().getShipSet().placeShipsRandomly();
+        statistics.placementTimes.add(System.nanoTime() - start);
+
+        GameAI ai = controller.getOpponentAI();
+        if (this.budget >= 0) {
+            ai.setMoveTimeBudget(this.budget);
+        }
+        int shots = 0;
+        while (!ai.isAIWinner()) {
+            if (shots == this.gridSize * this.gridSize) {
+                throw new IllegalStateException("The AI has not won after attacking every cell, seed " + seed);
+            }
+            // The AI attacks the grid of player one and hands the turn back afterwards.
+            controller.switchPlayers();
+            start = System.nanoTime();
+            ai.makeMove();
+            statistics.moveTimes.add(System.nanoTime() - start);
+            shots++;
+        }
+        statistics.shots[shots]++;
+        statistics.games++;
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1000000) {
+            return String.format(Locale.US, "%.1fus", nanos / 1e3);
+        }
+        return String.format(Locale.US, "%.2fms", nanos / 1e6);
+    }
+
+    /**
+     * Results of a number of games. Each task collects its own statistics, which are added up once
+     * all tasks are done.
+     */
+    private static final class Statistics {
+
+        final long[] shots;//number of games won with each number of shots
+        final Histogram moveTimes = new Histogram();
+        final Histogram placementTimes = new Histogram();
+        long games;
+
+        Statistics(int cellCount) {
+            this.shots = new long[cellCount + 1];
+        }
+
+        void add(Statistics other) {
+            for (int i = 0; i < this.shots.length; i++) {
+                this.shots[i] += other.shots[i];
+            }
+            this.moveTimes.add(other.moveTimes);
+            this.placementTimes.add(other.placementTimes);
+            this.games += other.games;
+        }
+
+        double getMeanShots() {
+            long sum = 0;
+            for (int i = 0; i < this.shots.length; i++) {
+                sum += i * this.shots[i];
+            }
+            return this.games == 0 ? 0 : sum / (double) this.games;
+        }
+
+        int getShotsPercentile(double fraction) {
+            long rank = (long) Math.ceil(fraction * this.games);
+            long count = 0;
+            for (int i = 0; i < this.shots.length; i++) {
+                count += this.shots[i];
+                if (count >= rank && count > 0) {
+                    return i;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Histogram of durations in nanoseconds. Each power of two is split into 16 buckets, so a
+     * percentile is accurate up to about 6 percent while the memory needed does not depend on the
+     * number of values.
+     */
+    private static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final long[] counts = new long[64 * SUB_BUCKETS];
+        private long total;
+        private long max;
+
+        void add(long nanos) {
+            nanos = Math.max(nanos, 0);
+            this.counts[bucket(nanos)]++;
+            this.total++;
+            this.max = Math.max(this.max, nanos);
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < this.counts.length; i++) {
+                this.counts[i] += other.counts[i];
+            }
+            this.total += other.total;
+            this.max = Math.max(this.max, other.max);
+        }
+
+        /**
+         * Returns the lower bound of the bucket containing the given percentile. For fraction 1 the
+         * exact maximum is returned.
+         */
+        long getPercentile(double fraction) {
+            if (fraction >= 1.0) {
+                return this.max;
+            }
+            long rank = (long) Math.ceil(fraction * this.total);
+            long count = 0;
+            for (int i = 0; i < this.counts.length; i++) {
+                count += this.counts[i];
+                if (count >= rank && count > 0) {
+                    return lowerBound(i);
+                }
+            }
+            return 0;
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long subBucket = bucket % SUB_BUCKETS;
+            return (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.secuso.privacyfriendlybattleship.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the timer only counts while it is running and never runs backwards.
+ */
+
+public class BattleshipsTimerTest {
+    private BattleshipsTimer timer;
+
+    @Before
+    public void init() {
+        timer = new BattleshipsTimer();
+    }
+
+    @Test
+    public void stoppedTimerTest() throws InterruptedException {
+        assertEquals(0, timer.getTimeMillis());
+        Thread.sleep(20);
+        assertEquals(0, timer.getTimeMillis());
+
+        timer.start();
+        Thread.sleep(20);
+        timer.stop();
+        long time = timer.getTimeMillis();
+        assertTrue(time >= 20);
+        Thread.sleep(20);
+        assertEquals(time, timer.getTimeMillis());
+    }
+
+    @Test
+    public void monotonicTest() throws InterruptedException {
+        long last = 0;
+        for (int i = 0; i < 5; i++) {
+            timer.start();
+            for (int j = 0; j < 5; j++) {
+                Thread.sleep(2);
+                long time = timer.getTimeMillis();
+                assertTrue(time >= last);
+                last = time;
+            }
+            timer.stop();
+            assertTrue(timer.getTimeMillis() >= last);
+            last = timer.getTimeMillis();
+        }
+        assertTrue(last >= 50);
+    }
+
+    @Test
+    public void repeatedStartAndStopTest() throws InterruptedException {
+        timer.start();
+        Thread.sleep(20);
+        // Starting the running timer again does not reset its start time
+        timer.start();
+        assertTrue(timer.getTimeMillis() >= 20);
+        timer.stop();
+        long time = timer.getTimeMillis();
+        timer.stop();
+        assertEquals(time, timer.getTimeMillis());
+    }
+
+    @Test
+    public void setTimeTest() throws InterruptedException {
+        timer.setTimeMillis(61500);
+        assertEquals(61500, timer.getTimeMillis());
+        assertEquals(61, timer.getTime());
+
+        timer.start();
+        Thread.sleep(20);
+        timer.setTimeMillis(1000);
+        assertTrue(timer.getTimeMillis() < 2000);
+        Thread.sleep(20);
+        timer.stop();
+        assertTrue(timer.getTimeMillis() >= 1020);
+    }
+}
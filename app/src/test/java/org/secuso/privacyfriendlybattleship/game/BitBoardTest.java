@@ -0,0 +1,90 @@
+package org.secuso.privacyfriendlybattleship.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the bitboard operations, in particular for cells on both sides of a word boundary.
+ */
+
+public class BitBoardTest {
+    private long[] board;
+
+    @Before
+    public void init() {
+        board = BitBoard.create(12 * 12);
+    }
+
+    @Test
+    public void wordsTest() {
+        assertEquals(1, BitBoard.words(25));
+        assertEquals(1, BitBoard.words(64));
+        assertEquals(2, BitBoard.words(65));
+        assertEquals(3, BitBoard.words(144));
+        assertEquals(3, board.length);
+    }
+
+    @Test
+    public void setAndClearTest() {
+        assertTrue(BitBoard.isEmpty(board));
+
+        BitBoard.set(board, 0);
+        BitBoard.set(board, 63);
+        BitBoard.set(board, 64);
+        BitBoard.set(board, 143);
+        assertTrue(BitBoard.get(board, 0));
+        assertTrue(BitBoard.get(board, 63));
+        assertTrue(BitBoard.get(board, 64));
+        assertTrue(BitBoard.get(board, 143));
+        assertFalse(BitBoard.get(board, 1));
+        assertFalse(BitBoard.get(board, 62));
+        assertFalse(BitBoard.get(board, 65));
+        assertEquals(4, BitBoard.cardinality(board));
+
+        BitBoard.clear(board, 63);
+        BitBoard.set(board, 64, false);
+        assertFalse(BitBoard.get(board, 63));
+        assertFalse(BitBoard.get(board, 64));
+        assertTrue(BitBoard.get(board, 0));
+        assertEquals(2, BitBoard.cardinality(board));
+
+        BitBoard.set(board, 100, true);
+        assertTrue(BitBoard.get(board, 100));
+        BitBoard.clear(board, 0);
+        BitBoard.clear(board, 100);
+        BitBoard.clear(board, 143);
+        assertTrue(BitBoard.isEmpty(board));
+    }
+
+    @Test
+    public void setTwiceTest() {
+        BitBoard.set(board, 70);
+        BitBoard.set(board, 70);
+        assertEquals(1, BitBoard.cardinality(board));
+        BitBoard.clear(board, 71);
+        assertTrue(BitBoard.get(board, 70));
+    }
+
+    @Test
+    public void subsetAndIntersectionTest() {
+        long[] other = BitBoard.create(12 * 12);
+        BitBoard.set(board, 10);
+        BitBoard.set(board, 80);
+        BitBoard.set(other, 10);
+        BitBoard.set(other, 80);
+        BitBoard.set(other, 130);
+
+        assertTrue(BitBoard.isSubsetOf(board, other));
+        assertFalse(BitBoard.isSubsetOf(other, board));
+        assertTrue(BitBoard.intersects(board, other));
+
+        BitBoard.clear(other, 10);
+        BitBoard.clear(other, 80);
+        assertFalse(BitBoard.isSubsetOf(board, other));
+        assertFalse(BitBoard.intersects(board, other));
+    }
+}
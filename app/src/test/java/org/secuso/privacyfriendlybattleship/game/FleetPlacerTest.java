@@ -0,0 +1,83 @@
+package org.secuso.privacyfriendlybattleship.game;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that FleetPlacer places fleets legally and terminates on dense fleets, including fleets
+ * which do not fit at all.
+ */
+
+public class FleetPlacerTest {
+
+    /*
+    Places the fleet and checks that no ship overlaps or, if ships have to keep a distance,
+    touches another ship. Returns the cells covered by the fleet.
+     */
+    private long[] placeAndCheck(int gridSize, int[] shipSizes, boolean keepDistance, long seed) {
+        int[] placements = new FleetPlacer(gridSize, shipSizes, keepDistance, new Random(seed)).place();
+        assertEquals(shipSizes.length, placements.length);
+
+        long[] occupied = BitBoard.create(gridSize * gridSize);
+        long[] blocked = BitBoard.create(gridSize * gridSize);
+        for (int i = 0; i < shipSizes.length; i++) {
+            Direction axis = FleetPlacer.getAxis(placements[i]) == FleetPlacer.HORIZONTAL ? Direction.WEST : Direction.NORTH;
+            PlacementTable table = PlacementTable.get(gridSize, shipSizes[i], axis);
+            int index = FleetPlacer.getTableIndex(placements[i]);
+            assertTrue(index < table.getCount());
+            assertFalse("ships overlap or touch", table.intersects(index, keepDistance ? blocked : occupied));
+            table.addTo(index, occupied);
+            table.addHaloTo(index, blocked);
+        }
+        return occupied;
+    }
+
+    @Test
+    public void standardFleetTest() {
+        int[] shipSizes = {5, 4, 3, 3, 2};
+        for (long seed = 0; seed < 200; seed++) {
+            long[] occupied = placeAndCheck(10, shipSizes, false, seed);
+            assertEquals(17, BitBoard.cardinality(occupied));
+            placeAndCheck(10, shipSizes, true, seed);
+        }
+    }
+
+    @Test
+    public void fullGridTest() {
+        // The ships cover every cell of the grid, so most placements lead to dead ends.
+        int[] shipSizes = {5, 5, 5, 4, 4, 2};
+        for (long seed = 0; seed < 50; seed++) {
+            long[] occupied = placeAndCheck(5, shipSizes, false, seed);
+            assertEquals(25, BitBoard.cardinality(occupied));
+        }
+    }
+
+    @Test
+    public void denseFleetWithDistanceTest() {
+        int[] shipSizes = {5, 5, 5};
+        for (long seed = 0; seed < 50; seed++) {
+            placeAndCheck(5, shipSizes, true, seed);
+        }
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void fleetDoesNotFitTest() {
+        new FleetPlacer(5, new int[] {5, 5, 5, 5}, true, new Random(1)).place();
+    }
+
+    @Test
+    public void placeShipsRandomlyTest() {
+        for (long seed = 0; seed < 50; seed++) {
+            GameGrid grid = new GameGrid(10, new int[] {1, 2, 1, 1}, new GameRandom(seed));
+            grid.getShipSet().placeShipsRandomly();
+            assertTrue(grid.getShipSet().allShipsPlaced());
+            assertTrue(grid.getShipSet().placementLegit());
+            assertEquals(17, BitBoard.cardinality(grid.getShipMask()));
+        }
+    }
+}
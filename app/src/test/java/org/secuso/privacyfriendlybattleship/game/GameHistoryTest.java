@@ -0,0 +1,192 @@
+package org.secuso.privacyfriendlybattleship.game;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests recording finished games in the history and querying their statistics, also after the
+ * history has been loaded from the files again.
+ */
+
+public class GameHistoryTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+    private static final int[] FLEET = {1, 1, 0, 0};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+
+    @Before
+    public void init() throws IOException {
+        directory = folder.newFolder("history");
+    }
+
+    /*
+    Plays a game on a 5x5 grid in which the given player destroys the fleet of the other player,
+    the last move after the given number of milliseconds.
+     */
+    private GameController playGame(GameMode mode, int[] shipCount, boolean winner, long timeMillis) {
+        GameController controller = new GameController(mode, 5, shipCount);
+        controller.placeAllShips();
+        if (winner) {
+            controller.switchPlayers();
+        }
+        GameGrid grid = winner ? controller.getGridFirstPlayer() : controller.getGridSecondPlayer();
+        long[] ships = grid.getShipMask();
+        int remaining = BitBoard.cardinality(ships);
+        for (int cell = 0; remaining > 0; cell++) {
+            if (BitBoard.get(ships, cell)) {
+                if (--remaining == 0) {
+                    controller.getTimer(winner).setTimeMillis(timeMillis);
+                }
+                controller.makeMove(winner, cell % 5, cell / 5);
+            }
+        }
+        assertTrue(grid.getShipSet().allShipsDestroyed());
+        return controller;
+    }
+
+    private GameHistory.Statistics record(GameController controller) {
+        final GameHistory.Statistics[] statistics = new GameHistory.Statistics[1];
+        GameHistory.record(directory, controller, DIRECT, new GameHistory.StatisticsCallback() {
+            @Override
+            public void onStatistics(GameHistory.Statistics result) {
+                statistics[0] = result;
+            }
+        });
+        FileStorage.await();
+        assertNotNull(statistics[0]);
+        return statistics[0];
+    }
+
+    /*
+    Loads the history of the test directory from the files again.
+     */
+    private GameHistory.Statistics reload(GameMode mode, int[] shipCount) throws IOException {
+        GameHistory.getStatistics(folder.newFolder(), mode, 5, shipCount);
+        return GameHistory.getStatistics(directory, mode, 5, shipCount);
+    }
+
+    @Test
+    public void recordTest() {
+        GameHistory.Statistics statistics = record(playGame(GameMode.VS_AI_HARD, FLEET, false, 40000));
+        assertEquals(1, statistics.getGames());
+        assertEquals(1, statistics.getWins());
+        assertEquals(5, statistics.getAverageAttempts(), 0);
+        assertEquals(40000, statistics.getBestTime());
+
+        record(playGame(GameMode.VS_AI_HARD, FLEET, true, 10000));
+        statistics = record(playGame(GameMode.VS_AI_HARD, FLEET, false, 30000));
+        assertEquals(3, statistics.getGames());
+        assertEquals(2, statistics.getWins());
+        assertEquals(2 / 3.0, statistics.getWinRate(), 1e-9);
+        assertEquals(30000, statistics.getBestTime());
+    }
+
+    @Test
+    public void noWinTest() {
+        GameHistory.Statistics statistics = GameHistory.getStatistics(directory, GameMode.VS_AI_EASY, 5, FLEET);
+        assertEquals(0, statistics.getGames());
+        assertEquals(0, statistics.getWinRate(), 0);
+        assertEquals(-1, statistics.getBestTime());
+
+        statistics = record(playGame(GameMode.VS_AI_EASY, FLEET, true, 10000));
+        assertEquals(1, statistics.getGames());
+        assertEquals(0, statistics.getWins());
+        assertEquals(-1, statistics.getBestTime());
+    }
+
+    @Test
+    public void separateStatisticsTest() {
+        record(playGame(GameMode.VS_AI_HARD, FLEET, false, 40000));
+        record(playGame(GameMode.VS_AI_HARD, new int[] {2, 0, 0, 0}, false, 20000));
+        record(playGame(GameMode.VS_AI_EASY, FLEET, false, 10000));
+
+        GameHistory.Statistics statistics = GameHistory.getStatistics(directory, GameMode.VS_AI_HARD, 5, FLEET);
+        assertEquals(1, statistics.getGames());
+        assertEquals(40000, statistics.getBestTime());
+        assertEquals(0, GameHistory.getStatistics(directory, GameMode.VS_AI_HARD, 10, FLEET).getGames());
+        assertEquals(0, GameHistory.getStatistics(directory, GameMode.CUSTOM, 5, FLEET).getGames());
+    }
+
+    @Test
+    public void reloadTest() throws IOException {
+        record(playGame(GameMode.VS_AI_HARD, FLEET, false, 40000));
+        record(playGame(GameMode.VS_AI_HARD, FLEET, true, 10000));
+        record(playGame(GameMode.VS_AI_EASY, FLEET, false, 10000));
+
+        GameHistory.Statistics statistics = reload(GameMode.VS_AI_HARD, FLEET);
+        assertEquals(2, statistics.getGames());
+        assertEquals(1, statistics.getWins());
+        assertEquals(40000, statistics.getBestTime());
+
+        // Without the summary the statistics are computed from the history
+        assertTrue(new File(directory, "game_history_summary").delete());
+        statistics = reload(GameMode.VS_AI_HARD, FLEET);
+        assertEquals(2, statistics.getGames());
+        assertEquals(1, statistics.getWins());
+        assertEquals(40000, statistics.getBestTime());
+        assertEquals(1, reload(GameMode.VS_AI_EASY, FLEET).getGames());
+    }
+
+    @Test
+    public void tornRecordTest() throws IOException {
+        record(playGame(GameMode.VS_AI_HARD, FLEET, false, 40000));
+        record(playGame(GameMode.VS_AI_HARD, FLEET, false, 30000));
+        File file = new File(directory, "game_history");
+        long length = file.length();
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.seek(length);
+            out.write(new byte[] {1, 2, 3, 4, 5});
+        } finally {
+            out.close();
+        }
+
+        // The partial record is ignored and overwritten by the next game
+        assertEquals(2, reload(GameMode.VS_AI_HARD, FLEET).getGames());
+        GameHistory.Statistics statistics = record(playGame(GameMode.VS_AI_HARD, FLEET, false, 20000));
+        assertEquals(3, statistics.getGames());
+        assertEquals(20000, statistics.getBestTime());
+        assertEquals(length + 20, file.length());
+
+        assertTrue(new File(directory, "game_history_summary").delete());
+        statistics = reload(GameMode.VS_AI_HARD, FLEET);
+        assertEquals(3, statistics.getGames());
+        assertEquals(3, statistics.getWins());
+        assertEquals(20000, statistics.getBestTime());
+    }
+
+    @Test
+    public void damagedSummaryTest() throws IOException {
+        record(playGame(GameMode.VS_AI_HARD, FLEET, false, 40000));
+        RandomAccessFile out = new RandomAccessFile(new File(directory, "game_history_summary"), "rw");
+        try {
+            out.setLength(10);
+        } finally {
+            out.close();
+        }
+
+        GameHistory.Statistics statistics = reload(GameMode.VS_AI_HARD, FLEET);
+        assertEquals(1, statistics.getGames());
+        assertEquals(40000, statistics.getBestTime());
+        assertEquals(0, reload(GameMode.VS_AI_EASY, FLEET).getGames());
+    }
+}
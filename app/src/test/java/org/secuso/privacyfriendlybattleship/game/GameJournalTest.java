@@ -0,0 +1,206 @@
+package org.secuso.privacyfriendlybattleship.game;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests writing the moves of a game to the journal and resuming the game from it. The journal is
+ * written on the storage thread, so the tests wait for it before reading the file.
+ */
+
+public class GameJournalTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private GameController controller;
+    private GameJournal journal;
+
+    @Before
+    public void init() {
+        directory = folder.getRoot();
+        controller = new GameController(GameMode.VS_AI_HARD, 10, new int[] {1, 2, 1, 1}, 7);
+        controller.placeAllShips();
+        journal = GameJournal.create(directory, controller);
+        controller.setJournal(journal);
+    }
+
+    private void playRounds(GameController controller, int rounds) {
+        GameGrid grid = controller.getGridSecondPlayer();
+        for (int i = 0; i < rounds; i++) {
+            int cell = 0;
+            while (grid.getCell(cell).isHit()) {
+                cell++;
+            }
+            controller.makeMove(false, cell % 10, cell / 10);
+            controller.switchPlayers();
+            controller.getOpponentAI().makeMove();
+        }
+    }
+
+    private GameController closeAndResume(GameJournal journal) {
+        journal.close();
+        FileStorage.await();
+        return GameJournal.resume(directory);
+    }
+
+    private void assertSameMoves(GameController expected, GameController actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getMoveLog().size(), actual.getMoveLog().size());
+        for (int move = 0; move < expected.getMoveLog().size(); move++) {
+            assertEquals(expected.getMoveLog().getEvent(move), actual.getMoveLog().getEvent(move));
+        }
+        assertArrayEquals(expected.getGridFirstPlayer().getHitMask(), actual.getGridFirstPlayer().getHitMask());
+        assertArrayEquals(expected.getGridSecondPlayer().getHitMask(), actual.getGridSecondPlayer().getHitMask());
+        assertArrayEquals(expected.getGridSecondPlayer().getShipMask(), actual.getGridSecondPlayer().getShipMask());
+        assertEquals(expected.getAttemptsPlayerOne(), actual.getAttemptsPlayerOne());
+        assertEquals(expected.getAttemptsPlayerTwo(), actual.getAttemptsPlayerTwo());
+        assertEquals(expected.getCurrentPlayer(), actual.getCurrentPlayer());
+    }
+
+    @Test
+    public void appendAndResumeTest() {
+        playRounds(controller, 15);
+        GameController resumed = closeAndResume(journal);
+        assertSameMoves(controller, resumed);
+        assertTrue(GameJournal.exists(directory));
+
+        // The AI of the resumed game plays on
+        resumed.makeMove(false, 9, 9);
+        resumed.switchPlayers();
+        resumed.getOpponentAI().makeMove();
+        assertFalse(resumed.getCurrentPlayer());
+    }
+
+    @Test
+    public void truncateTest() {
+        playRounds(controller, 10);
+        controller.undoMove();
+        controller.undoMove();
+        controller.undoMove();
+        assertSameMoves(controller, closeAndResume(journal));
+    }
+
+    @Test
+    public void undoAndMoveAgainTest() {
+        playRounds(controller, 10);
+        FileStorage.await();
+        controller.undoMove();
+        controller.undoMove();
+        playRounds(controller, 3);
+        assertSameMoves(controller, closeAndResume(journal));
+    }
+
+    @Test
+    public void resumeBeforePlayersTurnTest() {
+        playRounds(controller, 4);
+        controller.makeMove(false, 9, 9);
+        controller.switchPlayers();
+
+        // The AI has not answered the last move of the player yet, so it is its turn
+        GameController resumed = closeAndResume(journal);
+        assertSameMoves(controller, resumed);
+        assertTrue(resumed.getCurrentPlayer());
+    }
+
+    @Test
+    public void tornRecordTest() throws IOException {
+        playRounds(controller, 6);
+        journal.close();
+        FileStorage.await();
+        appendBytes(new byte[] {1, 2, 3});
+
+        GameController resumed = GameJournal.resume(directory);
+        assertSameMoves(controller, resumed);
+
+        // Opening the journal drops the partial record, so further moves can be read again
+        GameJournal reopened = GameJournal.open(directory, resumed);
+        resumed.setJournal(reopened);
+        playRounds(resumed, 3);
+        assertSameMoves(resumed, closeAndResume(reopened));
+    }
+
+    @Test
+    public void openAndAppendTest() {
+        playRounds(controller, 5);
+        GameController resumed = closeAndResume(journal);
+
+        GameJournal reopened = GameJournal.open(directory, resumed);
+        resumed.setJournal(reopened);
+        playRounds(resumed, 5);
+        resumed.undoMove();
+        assertSameMoves(resumed, closeAndResume(reopened));
+    }
+
+    @Test
+    public void damagedJournalTest() throws IOException {
+        playRounds(controller, 3);
+        journal.close();
+        FileStorage.await();
+        RandomAccessFile file = new RandomAccessFile(new File(directory, "game_journal"), "rw");
+        try {
+            file.writeInt(-1);
+        } finally {
+            file.close();
+        }
+        assertNull(GameJournal.resume(directory));
+    }
+
+    @Test
+    public void resumeInBackgroundTest() {
+        playRounds(controller, 3);
+        journal.close();
+
+        final GameController[] resumed = new GameController[1];
+        GameJournal.resume(directory, DIRECT, new GameJournal.ResumeCallback() {
+            @Override
+            public void onResumed(GameController controller) {
+                resumed[0] = controller;
+            }
+        });
+        FileStorage.await();
+        assertSameMoves(controller, resumed[0]);
+    }
+
+    @Test
+    public void deleteTest() {
+        playRounds(controller, 3);
+        controller.setJournal(null);
+        journal.close();
+        GameJournal.delete(directory);
+        FileStorage.await();
+        assertFalse(GameJournal.exists(directory));
+        assertNull(GameJournal.resume(directory));
+    }
+
+    private void appendBytes(byte[] bytes) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(new File(directory, "game_journal"), "rw");
+        try {
+            file.seek(file.length());
+            file.write(bytes);
+        } finally {
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.secuso.privacyfriendlybattleship.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the index of the ships on each cell, which GameShipSet keeps up to date while ships are
+ * placed, moved and removed.
+ */
+
+public class GameShipSetTest {
+    private GameGrid grid;
+    private GameShipSet shipSet;
+
+    @Before
+    public void init() {
+        grid = new GameGrid(6, new int[] {2, 1, 0, 0}, new GameRandom(1));
+        shipSet = grid.getShipSet();
+    }
+
+    @Test
+    public void placeShipTest() {
+        shipSet.placeShip(0, 0, 3, Direction.WEST);
+        GameShip ship = shipSet.getShip(1, 0);
+
+        for (int col = 0; col < 3; col++) {
+            GameCell cell = grid.getCell(col, 0);
+            assertTrue(cell.isShip());
+            assertEquals(1, shipSet.shipsOnCell(cell));
+            assertSame(ship, shipSet.findShipContainingCell(cell));
+        }
+        assertFalse(grid.getCell(3, 0).isShip());
+        assertEquals(0, shipSet.shipsOnCell(grid.getCell(3, 0)));
+        assertTrue(shipSet.placementLegit());
+    }
+
+    @Test
+    public void conflictsAfterPlaceAndMoveTest() {
+        shipSet.placeShip(0, 0, 3, Direction.WEST);
+        shipSet.placeShip(1, 0, 2, Direction.NORTH);
+        GameShip ship = shipSet.getShip(1, 0);
+        GameShip overlapping = shipSet.getShip(0, 0);
+
+        // Both ships cover the cell (1, 0)
+        assertEquals(2, shipSet.shipsOnCell(grid.getCell(1, 0)));
+        List<GameCell> conflicts = shipSet.findPlacementConflicts(false);
+        assertEquals(1, conflicts.size());
+        assertEquals(grid.getCellIndex(1, 0), conflicts.get(0).getIndex());
+        assertFalse(shipSet.placementLegit());
+
+        // Moving the ship away resolves the overlap, but the ships still touch
+        overlapping.moveShip(Direction.SOUTH);
+        assertEquals(1, shipSet.shipsOnCell(grid.getCell(1, 0)));
+        assertTrue(grid.getCell(1, 0).isShip());
+        assertSame(ship, shipSet.findShipContainingCell(grid.getCell(1, 0)));
+        assertTrue(shipSet.findPlacementConflicts(false).isEmpty());
+        assertFalse(shipSet.findPlacementConflicts(true).isEmpty());
+
+        overlapping.moveShip(Direction.SOUTH);
+        assertTrue(shipSet.findPlacementConflicts(true).isEmpty());
+        assertFalse(grid.getCell(1, 1).isShip());
+        assertSame(overlapping, shipSet.findShipContainingCell(grid.getCell(1, 3)));
+    }
+
+    @Test
+    public void removeShipTest() {
+        shipSet.placeShip(0, 0, 3, Direction.WEST);
+        shipSet.placeShip(1, 0, 2, Direction.NORTH);
+        GameShip ship = shipSet.getShip(1, 0);
+
+        ship.close();
+        assertFalse(grid.getCell(0, 0).isShip());
+        assertEquals(0, shipSet.shipsOnCell(grid.getCell(0, 0)));
+        // The cell shared with the other ship still contains a ship
+        assertTrue(grid.getCell(1, 0).isShip());
+        assertEquals(1, shipSet.shipsOnCell(grid.getCell(1, 0)));
+        assertSame(shipSet.getShip(0, 0), shipSet.findShipContainingCell(grid.getCell(1, 0)));
+    }
+
+    @Test
+    public void destroyShipTest() {
+        shipSet.placeShip(0, 0, 3, Direction.WEST);
+        shipSet.placeShip(4, 4, 2, Direction.WEST);
+        GameShip ship = shipSet.getShip(0, 0);
+        assertEquals(2, shipSet.getRemainingShipCount());
+
+        grid.getCell(4, 4).setHit(true);
+        assertFalse(ship.isDestroyed());
+        grid.getCell(5, 4).setHit(true);
+        assertTrue(ship.isDestroyed());
+        assertEquals(1, shipSet.getRemainingShipCount());
+        assertFalse(shipSet.allShipsDestroyed());
+
+        for (int col = 0; col < 3; col++) {
+            grid.getCell(col, 0).setHit(true);
+        }
+        // The second ship of size 2 has not been placed
+        assertTrue(shipSet.allShipsDestroyed());
+
+        grid.getCell(5, 4).setHit(false);
+        assertFalse(ship.isDestroyed());
+        assertFalse(shipSet.allShipsDestroyed());
+    }
+}
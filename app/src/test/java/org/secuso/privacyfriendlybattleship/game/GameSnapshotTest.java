@@ -0,0 +1,128 @@
+package org.secuso.privacyfriendlybattleship.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a game restored from its snapshot equals the original game.
+ */
+
+public class GameSnapshotTest {
+    private GameController controller;
+
+    @Before
+    public void init() {
+        controller = new GameController(GameMode.VS_AI_HARD, 10, new int[] {1, 2, 1, 1}, 42);
+        controller.placeAllShips();
+    }
+
+    private void playRounds(GameController controller, int rounds) {
+        GameGrid grid = controller.getGridSecondPlayer();
+        for (int i = 0; i < rounds; i++) {
+            int cell = 0;
+            while (grid.getCell(cell).isHit()) {
+                cell++;
+            }
+            controller.makeMove(false, cell % 10, cell / 10);
+            controller.switchPlayers();
+            // The AI hands the turn back to the player
+            controller.getOpponentAI().makeMove();
+        }
+    }
+
+    private void assertSameGame(GameController expected, GameController actual) {
+        assertEquals(expected.getMode(), actual.getMode());
+        assertEquals(expected.getGridSize(), actual.getGridSize());
+        assertArrayEquals(expected.getShipCount(), actual.getShipCount());
+        assertEquals(expected.getCurrentPlayer(), actual.getCurrentPlayer());
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.getRandom().getState(), actual.getRandom().getState());
+        assertEquals(expected.getAttemptsPlayerOne(), actual.getAttemptsPlayerOne());
+        assertEquals(expected.getAttemptsPlayerTwo(), actual.getAttemptsPlayerTwo());
+        assertEquals(expected.getTimer(false).getTimeMillis(), actual.getTimer(false).getTimeMillis());
+        assertEquals(expected.getTimer(true).getTimeMillis(), actual.getTimer(true).getTimeMillis());
+
+        GameGrid[] expectedGrids = {expected.getGridFirstPlayer(), expected.getGridSecondPlayer()};
+        GameGrid[] actualGrids = {actual.getGridFirstPlayer(), actual.getGridSecondPlayer()};
+        for (int i = 0; i < expectedGrids.length; i++) {
+            assertArrayEquals(expectedGrids[i].getShipMask(), actualGrids[i].getShipMask());
+            assertArrayEquals(expectedGrids[i].getHitMask(), actualGrids[i].getHitMask());
+            assertEquals(expectedGrids[i].getShipSet().getRemainingShipCount(),
+                    actualGrids[i].getShipSet().getRemainingShipCount());
+        }
+
+        MoveLog expectedLog = expected.getMoveLog();
+        MoveLog actualLog = actual.getMoveLog();
+        assertEquals(expectedLog.size(), actualLog.size());
+        assertEquals(expectedLog.getEnd(), actualLog.getEnd());
+        for (int move = 0; move < expectedLog.getEnd(); move++) {
+            assertEquals(expectedLog.getEvent(move), actualLog.getEvent(move));
+        }
+    }
+
+    @Test
+    public void newGameTest() {
+        assertSameGame(controller, GameSnapshot.read(GameSnapshot.write(controller)));
+    }
+
+    @Test
+    public void runningGameTest() {
+        playRounds(controller, 20);
+        controller.makeMove(false, 9, 9);
+        controller.getTimer(false).setTimeMillis(61234);
+        controller.getTimer(true).setTimeMillis(1500);
+
+        GameController restored = GameSnapshot.read(GameSnapshot.write(controller));
+        assertSameGame(controller, restored);
+
+        // The restored AI knows the moves made so far and plays on
+        restored.switchPlayers();
+        restored.getOpponentAI().makeMove();
+        assertEquals(controller.getAttemptsPlayerTwo() + 1, restored.getAttemptsPlayerTwo());
+    }
+
+    @Test
+    public void undoneMovesTest() {
+        playRounds(controller, 5);
+        controller.undoMove();
+        controller.undoMove();
+        assertTrue(controller.getMoveLog().canRedo());
+
+        GameController restored = GameSnapshot.read(GameSnapshot.write(controller));
+        assertSameGame(controller, restored);
+        assertTrue(restored.getMoveLog().canRedo());
+        assertEquals(controller.redoMove().getType(), restored.redoMove().getType());
+        assertSameGame(controller, restored);
+    }
+
+    @Test
+    public void unplacedShipsTest() {
+        GameController custom = new GameController(GameMode.CUSTOM, 5, new int[] {1, 1, 0, 0});
+        custom.getGridFirstPlayer().getShipSet().placeShip(0, 0, 3, Direction.WEST);
+
+        GameController restored = GameSnapshot.read(GameSnapshot.write(custom));
+        assertSameGame(custom, restored);
+        assertFalse(restored.getGridFirstPlayer().getShipSet().allShipsPlaced());
+        assertTrue(restored.getGridFirstPlayer().getCell(2, 0).isShip());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void unknownVersionTest() {
+        byte[] snapshot = GameSnapshot.write(controller);
+        snapshot[0]++;
+        GameSnapshot.read(snapshot);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void truncatedSnapshotTest() {
+        byte[] snapshot = GameSnapshot.write(controller);
+        byte[] truncated = new byte[snapshot.length / 2];
+        System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+        GameSnapshot.read(truncated);
+    }
+}
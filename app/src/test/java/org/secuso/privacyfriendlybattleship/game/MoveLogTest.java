@@ -0,0 +1,143 @@
+package org.secuso.privacyfriendlybattleship.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the packing of the events in the MoveLog and undoing and redoing moves, both in the log
+ * and in the GameController.
+ */
+
+public class MoveLogTest {
+    private MoveLog log;
+
+    @Before
+    public void init() {
+        log = new MoveLog(10);
+    }
+
+    @Test
+    public void encodeTest() {
+        for (MoveResult.Type result : MoveResult.Type.values()) {
+            for (int cell : new int[] {0, 99, 143}) {
+                for (int timeDelta : new int[] {0, 1234, Integer.MAX_VALUE}) {
+                    for (boolean player : new boolean[] {false, true}) {
+                        long event = MoveLog.encode(cell, player, result, timeDelta);
+                        assertEquals(cell, MoveLog.getCell(event));
+                        assertEquals(player, MoveLog.getPlayer(event));
+                        assertEquals(result, MoveLog.getResult(event));
+                        assertEquals(timeDelta, MoveLog.getTimeDelta(event));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void appendTest() {
+        log.append(5, false, MoveResult.Type.MISS, 1000);
+        log.append(17, true, MoveResult.Type.HIT, 200);
+        log.append(6, false, MoveResult.Type.SUNK, 3000);
+
+        assertEquals(3, log.size());
+        assertEquals(17, log.getCell(1));
+        assertTrue(log.getPlayer(1));
+        assertEquals(MoveResult.Type.SUNK, log.getResult(2));
+        assertEquals(3000, log.getTimeDelta(2));
+        assertEquals(4000, log.getTime(false));
+        assertEquals(200, log.getTime(true));
+    }
+
+    @Test
+    public void undoAndRedoTest() {
+        log.append(5, false, MoveResult.Type.MISS, 1000);
+        long second = log.append(17, true, MoveResult.Type.HIT, 200);
+        log.append(6, false, MoveResult.Type.SUNK, 3000);
+
+        log.undo();
+        assertEquals(second, log.undo());
+        assertEquals(1, log.size());
+        assertTrue(log.canUndo());
+        assertTrue(log.canRedo());
+        assertEquals(second, log.peekRedo());
+        assertEquals(1000, log.getTime(false));
+        assertEquals(0, log.getTime(true));
+
+        // Making the undone move again redoes it with its original time
+        assertEquals(second, log.append(17, true, MoveResult.Type.HIT, 999));
+        assertEquals(2, log.size());
+        assertEquals(200, log.getTime(true));
+        assertTrue(log.canRedo());
+
+        // A different move discards the undone moves
+        log.append(7, false, MoveResult.Type.MISS, 500);
+        assertEquals(3, log.size());
+        assertFalse(log.canRedo());
+        assertEquals(7, log.getCell(2));
+        assertEquals(1500, log.getTime(false));
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void undoEmptyLogTest() {
+        log.undo();
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void redoWithoutUndoneMoveTest() {
+        log.append(5, false, MoveResult.Type.MISS, 0);
+        log.peekRedo();
+    }
+
+    @Test
+    public void controllerUndoAndRedoTest() {
+        GameController controller = new GameController(GameMode.CUSTOM, 5, new int[] {1, 1, 0, 0});
+        GameShipSet shipSet = controller.getGridSecondPlayer().getShipSet();
+        shipSet.placeShip(0, 0, 2, Direction.WEST);
+        shipSet.placeShip(0, 4, 3, Direction.WEST);
+        assertFalse(controller.undoMove());
+        assertNull(controller.redoMove());
+
+        controller.makeMove(false, 0, 0);
+        controller.makeMove(false, 1, 0);
+        assertTrue(shipSet.getShip(0, 0).isDestroyed());
+
+        assertTrue(controller.undoMove());
+        assertFalse(controller.getGridSecondPlayer().getCell(1, 0).isHit());
+        assertFalse(shipSet.getShip(0, 0).isDestroyed());
+        assertEquals(1, controller.getAttemptsPlayerOne());
+        assertFalse(controller.getCurrentPlayer());
+
+        MoveResult result = controller.redoMove();
+        assertEquals(MoveResult.Type.SUNK, result.getType());
+        assertTrue(controller.getGridSecondPlayer().getCell(1, 0).isHit());
+        assertEquals(2, controller.getAttemptsPlayerOne());
+        assertEquals(2, controller.getMoveLog().size());
+        assertNull(controller.redoMove());
+    }
+
+    @Test
+    public void controllerUndoAIMoveTest() {
+        GameController controller = new GameController(GameMode.VS_AI_HARD, 10, new int[] {1, 2, 1, 1}, 3);
+        controller.placeAllShips();
+        controller.makeMove(false, 0, 0);
+        controller.switchPlayers();
+        GameAI ai = controller.getOpponentAI();
+        ai.makeMove();
+
+        // Undoing the move of the AI gives it the turn again and recreates the AI
+        assertTrue(controller.undoMove());
+        assertTrue(controller.getCurrentPlayer());
+        assertEquals(0, controller.getAttemptsPlayerTwo());
+        assertTrue(BitBoard.isEmpty(controller.getGridFirstPlayer().getHitMask()));
+        assertFalse(ai == controller.getOpponentAI());
+
+        controller.redoMove();
+        assertEquals(1, controller.getAttemptsPlayerTwo());
+        assertEquals(1, BitBoard.cardinality(controller.getGridFirstPlayer().getHitMask()));
+    }
+}
@@ -0,0 +1,95 @@
+package org.secuso.privacyfriendlybattleship.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the results returned by GameController.makeMove.
+ */
+
+public class MoveResultTest {
+    private GameController controller;
+    private GameShipSet shipSet;
+
+    @Before
+    public void init() {
+        controller = new GameController(GameMode.CUSTOM, 5, new int[] {1, 1, 0, 0});
+        shipSet = controller.getGridSecondPlayer().getShipSet();
+        shipSet.placeShip(0, 0, 3, Direction.WEST);
+        shipSet.placeShip(0, 4, 2, Direction.WEST);
+    }
+
+    @Test
+    public void missTest() {
+        MoveResult result = controller.makeMove(false, 4, 2);
+        assertEquals(MoveResult.Type.MISS, result.getType());
+        assertFalse(result.isHit());
+        assertFalse(result.isSunk());
+        assertNull(result.getShip());
+        assertEquals(0, result.getSunkShipSize());
+    }
+
+    @Test
+    public void hitAndSunkTest() {
+        MoveResult result = controller.makeMove(false, 0, 0);
+        assertEquals(MoveResult.Type.HIT, result.getType());
+        assertTrue(result.isHit());
+        assertFalse(result.isSunk());
+        assertNull(result.getShip());
+
+        assertEquals(MoveResult.Type.HIT, controller.makeMove(false, 1, 0).getType());
+        result = controller.makeMove(false, 2, 0);
+        assertEquals(MoveResult.Type.SUNK, result.getType());
+        assertTrue(result.isHit());
+        assertTrue(result.isSunk());
+        assertFalse(result.isFleetDestroyed());
+        assertSame(shipSet.getShip(1, 0), result.getShip());
+        assertEquals(3, result.getSunkShipSize());
+    }
+
+    @Test
+    public void fleetDestroyedTest() {
+        controller.makeMove(false, 0, 0);
+        controller.makeMove(false, 1, 0);
+        controller.makeMove(false, 2, 0);
+        controller.makeMove(false, 0, 4);
+        MoveResult result = controller.makeMove(false, 1, 4);
+        assertEquals(MoveResult.Type.FLEET_DESTROYED, result.getType());
+        assertTrue(result.isSunk());
+        assertTrue(result.isFleetDestroyed());
+        assertEquals(2, result.getSunkShipSize());
+        assertTrue(shipSet.allShipsDestroyed());
+        assertEquals(5, controller.getAttemptsPlayerOne());
+    }
+
+    @Test
+    public void moveLogTest() {
+        controller.makeMove(false, 4, 2);
+        controller.makeMove(false, 0, 4);
+        controller.makeMove(false, 1, 4);
+
+        MoveLog log = controller.getMoveLog();
+        assertEquals(3, log.size());
+        assertEquals(MoveResult.Type.MISS, log.getResult(0));
+        assertEquals(MoveResult.Type.HIT, log.getResult(1));
+        assertEquals(MoveResult.Type.SUNK, log.getResult(2));
+        assertEquals(controller.getGridSecondPlayer().getCellIndex(1, 4), log.getCell(2));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void attackCellTwiceTest() {
+        controller.makeMove(false, 0, 0);
+        controller.makeMove(false, 0, 0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void wrongPlayerTest() {
+        controller.makeMove(true, 0, 0);
+    }
+}